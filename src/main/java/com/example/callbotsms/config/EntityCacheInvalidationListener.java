@@ -0,0 +1,107 @@
+package com.example.callbotsms.config;
+
+import com.example.callbotsms.service.CacheInvalidationBus;
+import com.example.callbotsms.service.CacheInvalidationHandler;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate only updates the second-level cache of the node that wrote the row,
+ * committed writes to cached reference entities are announced so the other nodes evict them too.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheInvalidationListener implements
+        PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @PostConstruct
+    public void init() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+        HibernateCacheConfig.ENTITY_REGIONS.forEach((entityName, region) ->
+                cacheInvalidationBus.register(region, new CacheInvalidationHandler() {
+                    // Reference tables are tiny, dropping the region avoids converting the key back to its id type
+                    @Override
+                    public void evict(String key) {
+                        clear();
+                    }
+
+                    @Override
+                    public void clear() {
+                        Cache cache = entityManagerFactory.getCache();
+                        cache.evict(entityClass(entityName));
+                        entityManagerFactory.unwrap(SessionFactoryImpl.class).getCache()
+                                .evictQueryRegion(HibernateCacheConfig.REFERENCE_QUERY_REGION);
+                    }
+                }));
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return HibernateCacheConfig.ENTITY_REGIONS.containsKey(persister.getEntityName());
+    }
+
+    private void publish(EntityPersister persister, Object id) {
+        String region = HibernateCacheConfig.ENTITY_REGIONS.get(persister.getEntityName());
+        if (region != null) {
+            cacheInvalidationBus.invalidate(region, String.valueOf(id));
+        }
+    }
+
+    private Class<?> entityClass(String entityName) {
+        return entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getMetamodel()
+                .entityPersister(entityName)
+                .getMappedClass();
+    }
+}
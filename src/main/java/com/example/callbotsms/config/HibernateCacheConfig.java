@@ -0,0 +1,98 @@
+package com.example.callbotsms.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import javax.persistence.SharedCacheMode;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String ACCOUNT_PLAN_REGION = "accountPlan";
+    public static final String APP_COMPONENT_REGION = "appComponent";
+    public static final String DATA_KV_REGION = "dataKv";
+    public static final String REFERENCE_QUERY_REGION = "referenceQuery";
+
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // Entities of the reference tables, cached read-write so writes through JPA update the local cache
+    public static final Map<String, String> ENTITY_REGIONS = Map.of(
+            "com.im.sso.model.AccountPlan", ACCOUNT_PLAN_REGION,
+            "com.im.sso.model.AppComponent", APP_COMPONENT_REGION,
+            "com.im.sso.model.DataKv", DATA_KV_REGION
+    );
+
+    @Value(value = "${app.cache.default-ttl-seconds:600}")
+    private long defaultTtlSeconds;
+
+    @Value(value = "${app.cache.default-max-size:1000}")
+    private long defaultMaxSize;
+
+    // Region name to override, e.g. app.cache.region-ttl-seconds={accountPlan:3600}
+    @Value(value = "#{${app.cache.region-ttl-seconds:{:}}}")
+    private Map<String, Long> regionTtlSeconds;
+
+    @Value(value = "#{${app.cache.region-max-size:{:}}}")
+    private Map<String, Long> regionMaxSize;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        for (String region : ENTITY_REGIONS.values()) {
+            createCache(cacheManager, region, boundedConfiguration(region));
+        }
+        createCache(cacheManager, REFERENCE_QUERY_REGION, boundedConfiguration(REFERENCE_QUERY_REGION));
+        createCache(cacheManager, QUERY_RESULTS_REGION, boundedConfiguration(QUERY_RESULTS_REGION));
+        // One entry per table, it must outlive every cached query result or stale results would be served
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        createCache(cacheManager, UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Every region is created above, an unknown one is a mapping mistake
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+            // Feeds the hibernate.second.level.cache.* and hibernate.query.cache.* meters
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            ENTITY_REGIONS.forEach((entity, region) ->
+                    properties.put(AvailableSettings.CLASS_CACHE_PREFIX + "." + entity, "read-write," + region));
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> boundedConfiguration(String region) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(regionMaxSize.getOrDefault(region, defaultMaxSize)));
+        configuration.setExpireAfterWrite(OptionalLong.of(
+                TimeUnit.SECONDS.toNanos(regionTtlSeconds.getOrDefault(region, defaultTtlSeconds))));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    private static void createCache(CacheManager cacheManager, String region, CaffeineConfiguration<Object, Object> configuration) {
+        if (cacheManager.getCache(region) == null) {
+            cacheManager.createCache(region, configuration);
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.example.callbotsms.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,6 +16,8 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.RecordInterceptor;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,20 +32,80 @@ public class KafkaConsumerConfig {
     @Value(value = "${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value(value = "${app.audit.consumer.concurrency:1}")
+    private int auditConsumerConcurrency;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+        return createConsumerFactory(StringDeserializer.class);
+    }
+
+    // Raw bytes, for topics whose payload is encoded by the producer (the Avro user topic)
+    @Bean
+    public ConsumerFactory<String, byte[]> binaryConsumerFactory() {
+        return createConsumerFactory(ByteArrayDeserializer.class);
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setRecordInterceptor(failureCounter());
         return factory;
     }
+
+    // User event listeners and their retry topic containers run here, so records are forwarded byte for byte
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> binaryKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(binaryConsumerFactory());
+        factory.setRecordInterceptor(failureCounter());
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(auditConsumerConcurrency);
+        return factory;
+    }
+
+    private <V> DefaultKafkaConsumerFactory<String, V> createConsumerFactory(Class<? extends Deserializer<V>> valueDeserializer) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, valueDeserializer);
+        DefaultKafkaConsumerFactory<String, V> factory = new DefaultKafkaConsumerFactory<>(props);
+        // Exports the client metrics, including kafka.consumer.fetch.manager.records.lag.max per listener
+        if (meterRegistry != null) {
+            factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        }
+        return factory;
+    }
+
+    // Retry topic containers share their factory's interceptor, so every failed attempt is counted per topic
+    private <V> RecordInterceptor<String, V> failureCounter() {
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<String, V> intercept(ConsumerRecord<String, V> record, Consumer<String, V> consumer) {
+                return record;
+            }
+
+            @Override
+            public void failure(ConsumerRecord<String, V> record, Exception exception, Consumer<String, V> consumer) {
+                if (meterRegistry != null) {
+                    Counter.builder("kafka.listener.failures")
+                            .tag("topic", record.topic())
+                            .register(meterRegistry)
+                            .increment();
+                }
+            }
+        };
+    }
 }
@@ -1,16 +1,25 @@
 package com.example.callbotsms.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Configuration
 public class KafkaProducerConfig {
@@ -18,18 +27,67 @@ public class KafkaProducerConfig {
     @Value(value = "${spring.kafka.bootstrap-servers}")
     private String bootstrapAddress;
 
+    @Value(value = "${app.kafka.producer.default-profile:durable}")
+    private String defaultProfile;
+
+    // Topic name to profile id, e.g. app.kafka.producer.topic-profiles={saveUserTopic:'throughput'}
+    @Value(value = "#{${app.kafka.producer.topic-profiles:{:}}}")
+    private Map<String, String> topicProfiles;
+
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+    public ProducerFactory<String, String> producerFactory(Optional<MeterRegistry> meterRegistry) {
+        return createProducerFactory(KafkaProducerProfile.lookup(defaultProfile), StringSerializer.class, meterRegistry);
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 
+    @Bean
+    public KafkaTemplateResolver kafkaTemplateResolver(
+            KafkaTemplate<String, String> kafkaTemplate,
+            Optional<MeterRegistry> meterRegistry
+    ) {
+        KafkaProducerProfile defaultProducerProfile = KafkaProducerProfile.lookup(defaultProfile);
+        Map<String, KafkaProducerProfile> profilesByTopic = new HashMap<>();
+        topicProfiles.forEach((topic, profile) -> profilesByTopic.put(topic, KafkaProducerProfile.lookup(profile)));
+
+        Map<KafkaProducerProfile, KafkaTemplate<String, String>> templates = new EnumMap<>(KafkaProducerProfile.class);
+        List<DefaultKafkaProducerFactory<String, ?>> ownedFactories = new ArrayList<>();
+        templates.put(defaultProducerProfile, kafkaTemplate);
+        for (KafkaProducerProfile profile : profilesByTopic.values()) {
+            if (!templates.containsKey(profile)) {
+                DefaultKafkaProducerFactory<String, String> factory =
+                        createProducerFactory(profile, StringSerializer.class, meterRegistry);
+                ownedFactories.add(factory);
+                templates.put(profile, new KafkaTemplate<>(factory));
+            }
+        }
+        return new KafkaTemplateResolver(
+                templates,
+                profile -> createProducerFactory(profile, ByteArraySerializer.class, meterRegistry),
+                profilesByTopic,
+                defaultProducerProfile,
+                ownedFactories
+        );
+    }
+
+    private <V> DefaultKafkaProducerFactory<String, V> createProducerFactory(
+            KafkaProducerProfile profile,
+            Class<? extends Serializer<V>> valueSerializer,
+            Optional<MeterRegistry> meterRegistry
+    ) {
+        Map<String, Object> configProps = new HashMap<>(profile.getSettings());
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, valueSerializer);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "callbot-sms-" + profile.getId()
+                + (valueSerializer == StringSerializer.class ? "" : "-binary"));
+        DefaultKafkaProducerFactory<String, V> factory = new DefaultKafkaProducerFactory<>(configProps);
+        // Exports the client metrics, e.g. kafka.producer.record.send.rate, batch.size.avg, request.latency.avg
+        meterRegistry.ifPresent(registry -> factory.addListener(
+                new MicrometerProducerListener<>(registry, List.of(Tag.of("profile", profile.getId())))));
+        return factory;
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.callbotsms.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public enum KafkaProducerProfile {
+    // Send as soon as possible, one leader acknowledgement
+    LOW_LATENCY("low-latency", Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 0,
+            ProducerConfig.BATCH_SIZE_CONFIG, 16384,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "none",
+            ProducerConfig.ACKS_CONFIG, "1",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false,
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG, 5
+    )),
+    // Large compressed batches for bulk traffic such as the user resync; the batching carries the
+    // throughput, acknowledgements stay as safe as DURABLE so a leader failover loses nothing
+    THROUGHPUT("throughput", Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 262144,
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 67108864L,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG, 5
+    )),
+    // No loss or duplicates on retry, still batched and compressed
+    DURABLE("durable", Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 5,
+            ProducerConfig.BATCH_SIZE_CONFIG, 65536,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd",
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG, 5,
+            ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000
+    ));
+
+    private final String id;
+    private final Map<String, Object> settings;
+
+    KafkaProducerProfile(String id, Map<String, Object> settings) {
+        this.id = id;
+        this.settings = settings;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Map<String, Object> getSettings() {
+        return settings;
+    }
+
+    public static KafkaProducerProfile lookup(final String id) {
+        for (KafkaProducerProfile enumValue : values()) {
+            if (enumValue.id.equalsIgnoreCase(id) || enumValue.name().equalsIgnoreCase(id)) {
+                return enumValue;
+            }
+        }
+        throw new RuntimeException(String.format("Invalid value for kafka producer profile [%s]. " +
+                "It should be %s", id, Arrays.stream(values()).map(KafkaProducerProfile::getId).toList()));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.callbotsms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+
+import java.util.List;
+
+@Configuration
+public class KafkaRetryTopicConfig {
+
+    public static final String RETRY_TOPIC_SUFFIX = "-retry";
+
+    public static final String DLT_SUFFIX = "-dlt";
+
+    // Topics whose listeners run on binaryKafkaListenerContainerFactory, batch listeners can not use retry topics
+    @Value(value = "${app.kafka.retry.topics:${spring.kafka.template.default-topic}}")
+    private List<String> retryTopics;
+
+    @Value(value = "${app.kafka.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value(value = "${app.kafka.retry.initial-interval-ms:1000}")
+    private long initialIntervalMs;
+
+    @Value(value = "${app.kafka.retry.multiplier:5.0}")
+    private double multiplier;
+
+    @Value(value = "${app.kafka.retry.max-interval-ms:60000}")
+    private long maxIntervalMs;
+
+    @Value(value = "${app.kafka.user-topic.partitions:12}")
+    private int retryTopicPartitions;
+
+    @Value(value = "${app.kafka.topic-replicas:1}")
+    private short topicReplicas;
+
+    /**
+     * A failed record is parked on {@code <topic>-retry-N} for 1s, 5s, 25s (by default) and then on
+     * {@code <topic>-dlt}, so the main partition keeps moving while the record waits.
+     */
+    @Bean
+    public RetryTopicConfiguration userEventRetryTopic(KafkaTemplateResolver kafkaTemplateResolver) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopics(retryTopics)
+                .maxAttempts(maxAttempts)
+                .exponentialBackoff(initialIntervalMs, multiplier, maxIntervalMs)
+                .retryTopicSuffix(RETRY_TOPIC_SUFFIX)
+                .dltSuffix(DLT_SUFFIX)
+                .suffixTopicsWithIndexValues()
+                .autoCreateTopicsWith(retryTopicPartitions, topicReplicas)
+                .listenerFactory("binaryKafkaListenerContainerFactory")
+                .dltHandlerMethod("deadLetterHandler", "handle")
+                .create(kafkaTemplateResolver.defaultBinary());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.callbotsms.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+public class KafkaTemplateResolver implements DisposableBean {
+
+    private final Map<KafkaProducerProfile, KafkaTemplate<String, String>> templates;
+
+    private final ConcurrentMap<KafkaProducerProfile, KafkaTemplate<String, byte[]>> binaryTemplates = new ConcurrentHashMap<>();
+
+    private final Function<KafkaProducerProfile, DefaultKafkaProducerFactory<String, byte[]>> binaryFactories;
+
+    private final Map<String, KafkaProducerProfile> topicProfiles;
+
+    private final KafkaProducerProfile defaultProfile;
+
+    private final List<DefaultKafkaProducerFactory<String, ?>> ownedFactories;
+
+    public KafkaTemplateResolver(
+            Map<KafkaProducerProfile, KafkaTemplate<String, String>> templates,
+            Function<KafkaProducerProfile, DefaultKafkaProducerFactory<String, byte[]>> binaryFactories,
+            Map<String, KafkaProducerProfile> topicProfiles,
+            KafkaProducerProfile defaultProfile,
+            List<DefaultKafkaProducerFactory<String, ?>> ownedFactories
+    ) {
+        this.templates = templates;
+        this.binaryFactories = binaryFactories;
+        this.topicProfiles = topicProfiles;
+        this.defaultProfile = defaultProfile;
+        this.ownedFactories = new CopyOnWriteArrayList<>(ownedFactories);
+    }
+
+    public KafkaTemplate<String, String> forTopic(String topic) {
+        return templates.get(profileOf(topic));
+    }
+
+    // Raw bytes on the wire, for topics whose payload is encoded by the caller
+    public KafkaTemplate<String, byte[]> forTopicBinary(String topic) {
+        return binaryTemplate(profileOf(topic));
+    }
+
+    public KafkaTemplate<String, byte[]> defaultBinary() {
+        return binaryTemplate(defaultProfile);
+    }
+
+    private KafkaTemplate<String, byte[]> binaryTemplate(KafkaProducerProfile producerProfile) {
+        return binaryTemplates.computeIfAbsent(producerProfile, profile -> {
+            DefaultKafkaProducerFactory<String, byte[]> factory = binaryFactories.apply(profile);
+            ownedFactories.add(factory);
+            return new KafkaTemplate<>(factory);
+        });
+    }
+
+    private KafkaProducerProfile profileOf(String topic) {
+        return topicProfiles.getOrDefault(topic, defaultProfile);
+    }
+
+    @Override
+    public void destroy() {
+        // Factories created here are not beans, close them so buffered records are flushed
+        ownedFactories.forEach(DefaultKafkaProducerFactory::destroy);
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.KafkaAdmin;
 
 import java.util.HashMap;
@@ -19,15 +20,57 @@ public class KafkaTopicConfig {
     @Value(value = "${spring.kafka.template.default-topic}")
     private String saveUserTopic;
 
+    @Value(value = "${app.kafka.user-topic.partitions:12}")
+    private int saveUserTopicPartitions;
+
+    @Value(value = "${app.kafka.topic-replicas:1}")
+    private short topicReplicas;
+
+    @Value(value = "${app.kafka.admin.fail-fast:false}")
+    private boolean failFast;
+
+    @Value(value = "${app.audit.topic:auditLogTopic}")
+    private String auditLogTopic;
+
+    @Value(value = "${app.audit.topic-partitions:6}")
+    private int auditLogTopicPartitions;
+
+    @Value(value = "${app.cache.invalidation.topic:cacheInvalidationTopic}")
+    private String cacheInvalidationTopic;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        return new KafkaAdmin(configs);
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(configs);
+        // Missing topics are created and topics with fewer partitions than declared are expanded at startup,
+        // with fail-fast an unreachable broker stops the startup instead of leaving the topics unchecked
+        kafkaAdmin.setFatalIfBrokerNotAvailable(failFast);
+        return kafkaAdmin;
     }
 
     @Bean
     public NewTopic inputTopic() {
-        return new NewTopic("saveUserTopic", 1, (short) 1);
+        return TopicBuilder.name(saveUserTopic)
+                .partitions(saveUserTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic auditLogTopic() {
+        return TopicBuilder.name(auditLogTopic)
+                .partitions(auditLogTopicPartitions)
+                .replicas(topicReplicas)
+                .build();
+    }
+
+    // CacheInvalidationBusImpl assigns partition 0 to every node, so this topic stays at one partition
+    @Bean
+    public NewTopic cacheInvalidationTopic() {
+        return TopicBuilder.name(cacheInvalidationTopic)
+                .partitions(1)
+                .replicas(topicReplicas)
+                .build();
     }
 }
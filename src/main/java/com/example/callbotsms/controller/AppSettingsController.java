@@ -0,0 +1,46 @@
+package com.example.callbotsms.controller;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.DataKvDto;
+import com.example.callbotsms.dto.response.DataResponse;
+import com.example.callbotsms.exception.ForbiddenException;
+import com.example.callbotsms.model.enums.AppInfoType;
+import com.example.callbotsms.model.enums.AuthorityType;
+import com.example.callbotsms.service.AppSettingsService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/sso/settings")
+public class AppSettingsController extends BaseController {
+
+    @Autowired
+    AppSettingsService appSettingsService;
+
+    @GetMapping
+    @Operation(summary = "Get Application Settings (getAppSettings)")
+    public DataResponse getAppSettings() {
+        checkSysAdmin(getCurrentUser());
+        return new DataResponse(appSettingsService.getSettings().getInfo());
+    }
+
+    @PutMapping("{key}")
+    @Operation(summary = "Update Application Setting (updateAppSetting)")
+    public DataResponse updateAppSetting(@PathVariable String key, @RequestBody DataKvDto dataKvDto) {
+        AppUserDto currentUser = getCurrentUser();
+        checkSysAdmin(currentUser);
+        return new DataResponse(appSettingsService.update(AppInfoType.lookup(key), dataKvDto.getValue(), currentUser).getInfo());
+    }
+
+    private void checkSysAdmin(AppUserDto currentUser) {
+        if (!AuthorityType.SYS_ADMIN.name().equals(currentUser.getAuthority())) {
+            throw new ForbiddenException("You aren't authorized to perform this operation.");
+        }
+    }
+}
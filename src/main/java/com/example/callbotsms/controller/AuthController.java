@@ -1,11 +1,13 @@
 package com.example.callbotsms.controller;
 
 import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.ResourceVersionDto;
 import com.example.callbotsms.dto.request.ChangePasswordRequest;
 import com.example.callbotsms.dto.request.SignUpRequest;
 import com.example.callbotsms.dto.response.Response;
 import com.example.callbotsms.dto.response.UserProfileResponse;
 import com.example.callbotsms.service.LogService;
+import com.example.callbotsms.service.ResourceVersionService;
 import com.example.callbotsms.service.UserCredentialsService;
 import com.example.callbotsms.service.UserService;
 
@@ -14,9 +16,13 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.Valid;
 
@@ -35,12 +41,20 @@ public class AuthController extends BaseController {
     @Autowired
     LogService logService;
 
+    @Autowired
+    ResourceVersionService resourceVersionService;
+
     @GetMapping("user")
     @Operation(summary = "Get current user (getCurrentUser)")
-    public ResponseEntity<UserProfileResponse> getUserProfile() {
-        return ResponseEntity.ok(
-                userService.getUserProfile(getCurrentUser().getId())
-        );
+    public ResponseEntity<UserProfileResponse> getUserProfile(WebRequest request) {
+        AppUserDto currentUser = getCurrentUser();
+        ResourceVersionDto version = resourceVersionService.getUserProfileVersion(currentUser);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(userService.getUserProfile(currentUser.getId()));
     }
 
     @PostMapping("user")
@@ -56,6 +70,16 @@ public class AuthController extends BaseController {
         );
     }
 
+    @PostMapping(value = "user/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload avatar for current user (saveCurrentUserAvatar)")
+    public ResponseEntity<UserProfileResponse> saveCurrentUserAvatar(@RequestPart("file") MultipartFile file) {
+        AppUserDto currentUser = getCurrentUser();
+        userService.saveAvatar(currentUser.getId(), file, currentUser);
+        return ResponseEntity.ok(
+                userService.getUserProfile(currentUser.getId())
+        );
+    }
+
     @PostMapping("password/change")
     @Operation(summary = "Change password for current user (changePassword)")
     public ResponseEntity<Response> changePassword(@RequestBody ChangePasswordRequest changePasswordRequest) {
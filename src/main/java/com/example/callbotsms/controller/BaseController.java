@@ -7,6 +7,7 @@ import com.example.callbotsms.dto.response.page.PageLink;
 import com.example.callbotsms.dto.response.page.SortOrder;
 import com.example.callbotsms.exception.*;
 import com.example.callbotsms.model.enums.PermissionType;
+import com.example.callbotsms.security.model.SecurityUser;
 import com.example.callbotsms.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -45,6 +46,15 @@ public abstract class BaseController {
         return currentUser;
     }
 
+    // The tenant is taken from the principal the JWT filter already loaded, without another lookup
+    protected UUID getCurrentTenantId() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof SecurityUser) {
+            return ((SecurityUser) principal).getUser().getTenantId();
+        }
+        return getCurrentUser().getTenantId();
+    }
+
     AppUserDto checkUserId(UUID tenantId, UUID userId) {
         AppUserDto userDto = userService.findUserById(tenantId, userId);
         checkNotNull(userDto, String.format("User with id [%s] is not found", userId));
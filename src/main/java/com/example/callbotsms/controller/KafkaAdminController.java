@@ -0,0 +1,39 @@
+package com.example.callbotsms.controller;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.response.Response;
+import com.example.callbotsms.exception.ForbiddenException;
+import com.example.callbotsms.model.enums.AuthorityType;
+import com.example.callbotsms.service.DeadLetterReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/sso/kafka")
+public class KafkaAdminController extends BaseController {
+
+    @Autowired
+    DeadLetterReplayService deadLetterReplayService;
+
+    @PostMapping("dlt/{topic}/replay")
+    @Operation(summary = "Replay dead letters (replayDeadLetters)", hidden = true)
+    public ResponseEntity<Response> replayDeadLetters(
+            @PathVariable String topic,
+            @Parameter(description = "Maximum amount of dead letters replayed by this call")
+            @RequestParam(defaultValue = "100") int batchSize
+    ) {
+        AppUserDto currentUser = getCurrentUser();
+        if (!AuthorityType.SYS_ADMIN.name().equals(currentUser.getAuthority())) {
+            throw new ForbiddenException("You aren't authorized to perform this operation.");
+        }
+        int replayed = deadLetterReplayService.replay(topic, batchSize);
+        return ResponseEntity.ok(new Response(String.format("Replayed %d dead letters", replayed)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.callbotsms.controller;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.LogRollupDto;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.model.enums.RollupGranularity;
+import com.example.callbotsms.service.LogRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/sso/log/analytics")
+public class LogAnalyticsController extends BaseController {
+
+    @Autowired
+    LogRollupService logRollupService;
+
+    @GetMapping
+    public List<LogRollupDto> getLogAnalytics(
+            @RequestParam(defaultValue = "HOUR") RollupGranularity granularity,
+            @RequestParam(required = false) EntityType entityType,
+            @RequestParam(required = false) ActionStatus actionStatus,
+            @RequestParam(required = false) ActionType actionType,
+            @RequestParam(required = false) Long createdAtStartTs,
+            @RequestParam(required = false) Long createdAtEndTs
+    ) {
+        AppUserDto currentUser = getCurrentUser();
+        return logRollupService.findRollups(
+                currentUser.getTenantId(),
+                granularity,
+                createdAtStartTs,
+                createdAtEndTs,
+                entityType,
+                actionType,
+                actionStatus
+        );
+    }
+}
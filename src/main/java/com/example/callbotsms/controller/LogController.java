@@ -15,11 +15,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("api/sso/log")
 public class LogController extends BaseController {
+
+    private static final String ACTION_DATA_PREFIX = "actionData.";
+
     @Autowired
     LogService logService;
 
@@ -37,7 +42,8 @@ public class LogController extends BaseController {
             @RequestParam(required = false) String sortOrder,
             @RequestParam(required = false) Long createdAtStartTs,
             @RequestParam(required = false) Long createdAtEndTs,
-            @RequestParam(defaultValue = "false") Boolean isSearchMatchCase
+            @RequestParam(defaultValue = "false") Boolean isSearchMatchCase,
+            @RequestParam Map<String, String> params
     ) {
         PageLink pageLink = createPageLink(
                 page, pageSize, searchText, sortProperty, sortOrder
@@ -53,7 +59,17 @@ public class LogController extends BaseController {
                 createdAtStartTs,
                 createdAtEndTs,
                 currentUser.getTenantId(),
-                isSearchMatchCase
+                isSearchMatchCase,
+                getActionDataFilters(params)
         );
     }
+
+    private Map<String, String> getActionDataFilters(Map<String, String> params) {
+        return params.entrySet().stream()
+                .filter(param -> param.getKey().startsWith(ACTION_DATA_PREFIX))
+                .collect(Collectors.toMap(
+                        param -> param.getKey().substring(ACTION_DATA_PREFIX.length()),
+                        Map.Entry::getValue
+                ));
+    }
 }
@@ -0,0 +1,84 @@
+package com.example.callbotsms.controller;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.service.LogEventBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("api/sso/log/stream")
+public class LogStreamController extends BaseController {
+
+    @Autowired
+    LogEventBroadcaster logEventBroadcaster;
+
+    @Value("${app.audit.stream.heartbeat-seconds:15}")
+    long heartbeatSeconds;
+
+    @Value("${app.audit.stream.buffer-size:256}")
+    int streamBufferSize;
+
+    // EventSource reconnects on its own, so a bounded stream only costs the client one reconnect
+    @Value("${app.audit.stream.timeout-ms:1800000}")
+    long streamTimeoutMs;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLogs(
+            @RequestParam(required = false) EntityType entityType,
+            @RequestParam(required = false) ActionStatus actionStatus,
+            @RequestParam(required = false) ActionType actionType
+    ) {
+        AppUserDto currentUser = getCurrentUser();
+        UUID tenantId = currentUser.getTenantId();
+
+        Flux<SseEmitter.SseEventBuilder> events = logEventBroadcaster.stream()
+                .filter(log -> Objects.equals(log.getTenantId(), tenantId))
+                .filter(log -> entityType == null || entityType == log.getEntityType())
+                .filter(log -> actionStatus == null || actionStatus == log.getActionStatus())
+                .filter(log -> actionType == null || actionType == log.getActionType())
+                .map(log -> SseEmitter.event()
+                        .id(String.valueOf(log.getId()))
+                        .name("log")
+                        .data(log, MediaType.APPLICATION_JSON));
+        // Comments keep proxies from closing an idle connection
+        Flux<SseEmitter.SseEventBuilder> heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds))
+                .map(tick -> SseEmitter.event().comment("heartbeat"));
+
+        // The timeout is set on this emitter only, other async requests keep the default
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        // Each viewer is written from its own worker with a bounded buffer, a stalled client loses events
+        // once its buffer is full instead of blocking the thread that saves the audit log
+        Disposable subscription = Flux.merge(events, heartbeats)
+                .onBackpressureDrop()
+                .publishOn(Schedulers.boundedElastic(), streamBufferSize)
+                .subscribe(event -> {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException e) {
+                        // The client went away, completion below releases the subscription
+                        emitter.completeWithError(e);
+                    }
+                }, emitter::completeWithError, emitter::complete);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscription.dispose());
+        return emitter;
+    }
+}
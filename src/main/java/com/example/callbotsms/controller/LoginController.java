@@ -16,7 +16,6 @@ import com.example.callbotsms.security.model.token.JwtTokenFactory;
 import com.example.callbotsms.security.service.RefreshTokenService;
 import com.example.callbotsms.security.service.SecurityUserService;
 import com.example.callbotsms.service.LogService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -76,11 +75,10 @@ public class LoginController {
             String refreshToken = jwtTokenFactory.generateToken(securityUser, jwtRefreshExp);
 
             refreshTokenService.createRefreshToken(securityUser.getUser(), refreshToken);
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .entityId(securityUser.getUser().getId())
-                    .actionData(objectMapper.valueToTree(loginRequest))
+                    .actionPayload(loginRequest)
                     .actionStatus(ActionStatus.SUCCESS)
                     .actionType(ActionType.LOGIN)
                     .build(), securityUser.getUser().getId(), securityUser.getUser().getTenantId());
@@ -88,10 +86,9 @@ public class LoginController {
                     new LoginResponse(token, refreshToken, jwtExp)
             );
         } catch (AuthenticationException e) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
-                    .actionData(objectMapper.valueToTree(loginRequest))
+                    .actionPayload(loginRequest)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionType(ActionType.LOGIN)
                     .actionFailureDetails("Incorrect email or password").build(), new AppUserDto());
@@ -107,11 +104,9 @@ public class LoginController {
             AppUser user = ((SecurityUser) principle).getUser();
             UUID userId = user.getId();
             refreshTokenService.deleteByUserId(userId);
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .entityId(user.getId())
-                    .actionData(objectMapper.valueToTree(null))
                     .actionType(ActionType.LOGOUT)
                     .actionStatus(ActionStatus.SUCCESS)
                     .build(), user.getId(), user.getTenantId());
@@ -130,21 +125,19 @@ public class LoginController {
                     String token = jwtTokenFactory.generateToken(securityUser, jwtExp);
                     String refreshToken = jwtTokenFactory.generateToken(securityUser, jwtRefreshExp);
                     refreshTokenService.createRefreshToken(securityUser.getUser(), refreshToken);
-                    ObjectMapper objectMapper = new ObjectMapper();
                     logService.save(LogDto.builder()
                                     .entityType(EntityType.USER)
                                     .entityId(securityUser.getUser().getId())
                                     .actionStatus(ActionStatus.SUCCESS)
-                                    .actionData(objectMapper.valueToTree(request))
+                                    .actionPayload(request)
                                     .actionType(ActionType.LOGIN).build(),
                             securityUser.getUser().getId(), securityUser.getUser().getTenantId());
                     return ResponseEntity.ok(new LoginResponse(token, refreshToken, jwtExp));
                 })
                 .orElseThrow(() -> {
-                    ObjectMapper objectMapper = new ObjectMapper();
                     logService.save(LogDto.builder()
                             .entityType(EntityType.USER)
-                            .actionData(objectMapper.valueToTree(request))
+                            .actionPayload(request)
                             .actionStatus(ActionStatus.FAILURE)
                             .actionType(ActionType.LOGIN)
                             .actionFailureDetails("Refresh token is not found!").build(), new AppUserDto());
@@ -1,10 +1,15 @@
 package com.example.callbotsms.controller;
 
+import com.example.callbotsms.dto.model.AppSettings;
+import com.example.callbotsms.dto.model.AvatarDto;
+import com.example.callbotsms.dto.model.ResourceVersionDto;
+import com.example.callbotsms.service.AppSettingsService;
 import com.im.sso.dto.response.DataResponse;
-import com.im.sso.service.AppInfoService;
 import com.im.sso.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,7 +17,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.UUID;
 
@@ -24,12 +31,19 @@ public class NoAuthController extends BaseController {
     UserService userService;
 
     @Autowired
-    AppInfoService appInfoService;
+    AppSettingsService appSettingsService;
 
     @GetMapping("info")
     @Operation(summary = "Get Application Information")
-    public DataResponse getAppInfo() {
-        return new DataResponse(appInfoService.findInfo());
+    public ResponseEntity<DataResponse> getAppInfo(WebRequest request) {
+        AppSettings settings = appSettingsService.getSettings();
+        ResourceVersionDto version = settings.getVersion();
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(new DataResponse(settings.getPublicInfo()));
     }
 
 //    @GetMapping("user/{userId}/avatar")
@@ -42,7 +56,20 @@ public class NoAuthController extends BaseController {
 
     @GetMapping("user/{userId}/avatar")
     @Operation(summary = "Get Avatar User by id (getAvatarUserById)")
-    public ResponseEntity<byte[]> getAvatarUserById(@PathVariable UUID userId) {
+    public ResponseEntity<?> getAvatarUserById(
+            @PathVariable UUID userId,
+            @Parameter(description = "Longest edge in pixels of a resized variant")
+            @RequestParam(required = false) Integer size
+    ) {
+        AvatarDto avatar = userService.getUserAvatar(userId, size);
+        if (avatar != null) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(avatar.getContentType()))
+                    .contentLength(avatar.getContentLength())
+                    .lastModified(avatar.getLastModified())
+                    .body(avatar.getResource());
+        }
+
         String data = userService.getUserAvatarById(userId);
         if (data == null || data.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
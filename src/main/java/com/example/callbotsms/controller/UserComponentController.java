@@ -1,5 +1,6 @@
 package com.example.callbotsms.controller;
 
+import com.example.callbotsms.service.ResourceVersionService;
 import com.im.sso.dto.model.AppComponentDto;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.UserComponentDto;
@@ -11,6 +12,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.transaction.Transactional;
 import javax.ws.rs.QueryParam;
 import java.util.Arrays;
 import java.util.List;
@@ -24,7 +26,11 @@ public class UserComponentController extends BaseController {
     @Autowired
     UserComponentService userComponentService;
 
+    @Autowired
+    ResourceVersionService resourceVersionService;
+
     @PostMapping
+    @Transactional
     @Operation(summary = "Assign Component with Permissions to User (assignComponentToUser)")
     public UserComponentDto assignComponentToUser(
             @Parameter(description = "Give userId to assign")
@@ -39,10 +45,13 @@ public class UserComponentController extends BaseController {
         AppComponentDto componentDto = checkComponentName(componentName);
         List<String> permissionList = Arrays.asList(permissions.split(","));
         validatePermissions(permissionList);
-        return userComponentService.save(userDto, componentDto, permissionList, currentUser);
+        UserComponentDto userComponentDto = userComponentService.save(userDto, componentDto, permissionList, currentUser);
+        resourceVersionService.bump(userId);
+        return userComponentDto;
     }
 
     @DeleteMapping
+    @Transactional
     @Operation(summary = "Unassigned Component from User (unassignedComponentFromUser)")
     public Response unassignedComponentFromUser(
             @Parameter(description = "Give userId to un-assign")
@@ -53,7 +62,9 @@ public class UserComponentController extends BaseController {
         AppUserDto currentUser = getCurrentUser();
         AppUserDto userDto = checkUserId(currentUser.getTenantId(), userId);
         AppComponentDto componentDto = checkComponentName(componentName);
-        return new Response(userComponentService.delete(userDto, componentDto, currentUser));
+        Response response = new Response(userComponentService.delete(userDto, componentDto, currentUser));
+        resourceVersionService.bump(userId);
+        return response;
     }
 
 }
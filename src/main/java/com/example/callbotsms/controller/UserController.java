@@ -1,6 +1,9 @@
 package com.example.callbotsms.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.callbotsms.dto.model.ResourceVersionDto;
+import com.example.callbotsms.dto.model.UserSyncStatusDto;
+import com.example.callbotsms.service.ResourceVersionService;
+import com.example.callbotsms.service.UserSyncService;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.LogDto;
 import com.im.sso.dto.request.UserActivateRequest;
@@ -18,8 +21,12 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
@@ -39,6 +46,12 @@ public class UserController extends BaseController {
     @Autowired
     LogService logService;
 
+    @Autowired
+    ResourceVersionService resourceVersionService;
+
+    @Autowired
+    UserSyncService userSyncService;
+
     @GetMapping
     @Operation(summary = "Get Users (getUsers)")
     public ResponseEntity<PageData<?>> getUsers(
@@ -77,8 +90,14 @@ public class UserController extends BaseController {
 
     @GetMapping("{userId}")
     @Operation(summary = "Get User by id (getUserById)")
-    public ResponseEntity<UserProfileResponse> getUserById(@PathVariable UUID userId) {
-        return ResponseEntity.ok(userService.getUserProfile(userId));
+    public ResponseEntity<UserProfileResponse> getUserById(@PathVariable UUID userId, WebRequest request) {
+        ResourceVersionDto version = resourceVersionService.getUserProfileVersion(userId);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(userService.getUserProfile(userId));
     }
 
     @GetMapping("isUserExist")
@@ -101,6 +120,20 @@ public class UserController extends BaseController {
         return userService.save(userDto, currentUser);
     }
 
+    @PostMapping(value = "{userId}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload User avatar (saveUserAvatar)")
+    public ResponseEntity<UserProfileResponse> saveUserAvatar(
+            @PathVariable UUID userId,
+            @RequestPart("file") MultipartFile file
+    ) {
+        AppUserDto currentUser = getCurrentUser();
+        checkUserId(currentUser.getTenantId(), userId);
+        userService.saveAvatar(userId, file, currentUser);
+        return ResponseEntity.ok(
+                userService.getUserProfile(userId)
+        );
+    }
+
     @PutMapping("{userId}/activate")
     @Transactional
     @Operation(summary = "Activate user (activateUser)")
@@ -111,13 +144,12 @@ public class UserController extends BaseController {
         AppUserDto user = checkUserId(currentUser.getTenantId(), userId);
         if (user.getAuthority().equals(AuthorityType.SYS_ADMIN.toString())
                 || currentUser.getId().equals(userId)) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .entityId(userId)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionType(ActionType.ATTRIBUTES_UPDATED)
-                    .actionData(objectMapper.valueToTree(new UserActivateRequest(userId, true)))
+                    .actionPayload(new UserActivateRequest(userId, true))
                     .actionFailureDetails("SYS_ADMIN is not allowed to activate himself.")
                     .build(), currentUser);
             throw new ForbiddenException("SYS_ADMIN is not allowed to activate himself.");
@@ -158,8 +190,19 @@ public class UserController extends BaseController {
 
     @GetMapping("sync")
     @Operation(summary = "Sync User Database (syncUsers)", hidden = true)
-    public ResponseEntity<Response> syncUsers() {
-        return ResponseEntity.ok(new Response(userService.syncUsers()));
+    public ResponseEntity<Response> syncUsers(
+            @Parameter(description = "Publish only users changed since the last successful sync")
+            @RequestParam(required = false) Boolean delta,
+            @Parameter(description = "Publish only users changed after this timestamp (ms), implies delta")
+            @RequestParam(required = false) Long sinceTs
+    ) {
+        return ResponseEntity.ok(new Response(userService.syncUsers(delta, sinceTs)));
+    }
+
+    @GetMapping("sync/status")
+    @Operation(summary = "Get User Sync Status (getSyncStatus)", hidden = true)
+    public ResponseEntity<UserSyncStatusDto> getSyncStatus() {
+        return ResponseEntity.ok(userSyncService.getStatus());
     }
 
 
@@ -1,6 +1,6 @@
 package com.example.callbotsms.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.callbotsms.service.ResourceVersionService;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.LogDto;
 import com.im.sso.dto.request.UserPlanRequest;
@@ -19,6 +19,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.transaction.Transactional;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("api/user/plan")
@@ -30,6 +32,8 @@ public class UserPlanController extends BaseController {
 
     private final LogService logService;
 
+    private final ResourceVersionService resourceVersionService;
+
     @GetMapping("list")
     ResponseEntity<PageData<?>> getAccountPlans(
             @Parameter(description = "Sequence number of page starting from 0")
@@ -44,21 +48,21 @@ public class UserPlanController extends BaseController {
     }
 
     @PostMapping
+    @Transactional(dontRollbackOn = ForbiddenException.class)
     ResponseEntity<Response> saveUserPlan(
             @RequestBody UserPlanRequest userPlanRequest
     ) {
         AppUserDto currentUser = getCurrentUser();
         if (!currentUser.getAuthority().equals(AuthorityType.SYS_ADMIN.name())) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER_PLAN)
-                    .actionData(objectMapper.valueToTree(userPlanRequest))
+                    .actionPayload(userPlanRequest)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionFailureDetails("You do not have permission to do this action").build(), currentUser);
             throw new ForbiddenException("You do not have permission to do this action");
         }
-        return ResponseEntity.ok(
-                new Response(userPlanService.save(userPlanRequest, currentUser))
-        );
+        Response response = new Response(userPlanService.save(userPlanRequest, currentUser));
+        resourceVersionService.bump(userPlanRequest.getUserId());
+        return ResponseEntity.ok(response);
     }
 }
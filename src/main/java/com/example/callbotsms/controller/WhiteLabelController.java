@@ -1,9 +1,10 @@
 package com.example.callbotsms.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.callbotsms.dto.model.WhiteLabelAsset;
+import com.example.callbotsms.dto.model.WhiteLabelDto;
+import com.example.callbotsms.service.WhiteLabelAssetService;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.LogDto;
-import com.im.sso.dto.model.WhiteLabelDto;
 import com.im.sso.exception.ForbiddenException;
 import com.im.sso.model.enums.ActionStatus;
 import com.im.sso.model.enums.ActionType;
@@ -14,9 +15,18 @@ import com.im.sso.service.WhiteLabelService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @SecurityRequirement(name = "Bearer Authentication")
@@ -29,11 +39,78 @@ public class WhiteLabelController extends BaseController {
     @Autowired
     LogService logService;
 
+    @Autowired
+    WhiteLabelAssetService whiteLabelAssetService;
+
     @GetMapping("whiteLabel")
     @Operation(summary = "Get Current Tenant White Label (getTenantWhiteLabel)")
-    public WhiteLabelDto getTenantWhiteLabel() {
-        AppUserDto currentUser = getCurrentUser();
-        return whiteLabelService.findByTenantId(currentUser.getTenantId());
+    public ResponseEntity<WhiteLabelDto> getTenantWhiteLabel(WebRequest request) {
+        WhiteLabelAsset asset = whiteLabelAssetService.findByTenantId(getCurrentTenantId());
+        if (asset == null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).build();
+        }
+        if (request.checkNotModified(asset.getEtag(), asset.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(asset.getWhiteLabel());
+    }
+
+    // The version is a hash of the logo bytes, so a given URL never changes content
+    @GetMapping("noauth/whiteLabel/{tenantId}/logo/{version}")
+    @Operation(summary = "Get Tenant White Label Logo (getTenantWhiteLabelLogo)")
+    public ResponseEntity<byte[]> getTenantWhiteLabelLogo(
+            @PathVariable UUID tenantId,
+            @PathVariable String version,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        WhiteLabelAsset asset = whiteLabelAssetService.findByTenantId(tenantId);
+        if (asset == null || !asset.hasLogo() || !asset.getLogoVersion().equals(version)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        boolean gzip = asset.getGzipLogo() != null && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(MediaType.valueOf(asset.getLogoContentType()))
+                .header("X-Content-Type-Options", "nosniff")
+                .eTag(asset.getLogoVersion())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? asset.getGzipLogo() : asset.getLogo());
+    }
+
+    // An explicit gzip entry wins over *, and a q-value of 0 means the coding is refused
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1d;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0d;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip != null ? Math.max(gzip, quality) : quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
     }
 
     @PostMapping("admin/whiteLabel")
@@ -46,16 +123,17 @@ public class WhiteLabelController extends BaseController {
     ) {
         AppUserDto currentUser = getCurrentUser();
         if (currentUser.getAuthority().equals(AuthorityType.CUSTOMER_USER.name())) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.WHITE_LABEL)
                     .actionType(whiteLabelDto.getId() != null ? ActionType.UPDATED : ActionType.CREATED)
                     .actionStatus(ActionStatus.FAILURE)
-                    .actionData(objectMapper.valueToTree(whiteLabelDto))
+                    .actionPayload(whiteLabelDto)
                     .actionFailureDetails("You do not have permission to do this action")
                     .build(), currentUser);
             throw new ForbiddenException("You do not have permission to do this action");
         }
-        return whiteLabelService.save(whiteLabelDto, currentUser);
+        WhiteLabelDto saved = whiteLabelService.save(whiteLabelDto, currentUser);
+        whiteLabelAssetService.evict(currentUser.getTenantId());
+        return saved;
     }
 }
@@ -0,0 +1,340 @@
+package com.example.callbotsms.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One-off changes to the log table that would rewrite every row if done with a single ALTER TABLE.
+ * Each migration adds a plain column, keeps new rows filled through a trigger, backfills the existing
+ * rows in small transactions and records its progress in {@code log_schema_migration}, so a restart
+ * resumes where the previous node stopped. Only one node migrates at a time.
+ */
+@Slf4j
+@Component
+public class LogSchemaMigration {
+
+    public static final String ACTION_DATA_JSONB = "action_data_jsonb";
+    public static final String SEARCH_VECTOR = "search_vector";
+
+    private static final long LOCK_KEY = 0x4c4f475343484d41L;
+
+    private static final String CREATE_MIGRATION_TABLE = "CREATE TABLE IF NOT EXISTS log_schema_migration (" +
+            "name varchar(64) PRIMARY KEY, " +
+            "cursor_id uuid, " +
+            "cursor_created_at timestamp, " +
+            "completed_at timestamp" +
+            ")";
+
+    static final String CREATE_QUARANTINE_TABLE = "CREATE TABLE IF NOT EXISTS log_quarantine (" +
+            "id uuid, " +
+            "created_at timestamp, " +
+            "reason varchar(255) NOT NULL, " +
+            "row_data jsonb NOT NULL, " +
+            "quarantined_at timestamp NOT NULL DEFAULT now()" +
+            ")";
+
+    private static final String NEXT_BATCH_END = "SELECT id, created_at FROM (" +
+            "SELECT id, created_at FROM log " +
+            "WHERE (CAST(? AS uuid) IS NULL OR (id, created_at) > (CAST(? AS uuid), CAST(? AS timestamp))) " +
+            "ORDER BY id, created_at LIMIT ?" +
+            ") batch ORDER BY id DESC, created_at DESC LIMIT 1";
+
+    private static final String BATCH_RANGE = "(CAST(? AS uuid) IS NULL OR (id, created_at) > (CAST(? AS uuid), CAST(? AS timestamp))) " +
+            "AND (id, created_at) <= (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long pauseMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-schema-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopped;
+
+    public LogSchemaMigration(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.audit.migration.enabled:true}") boolean enabled,
+            @Value("${app.audit.migration.batch-size:5000}") int batchSize,
+            @Value("${app.audit.migration.pause-ms:100}") long pauseMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    public void start() {
+        if (!enabled) return;
+        executor.execute(() -> {
+            try {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    // Session level advisory locks belong to a connection, so the whole run stays on this one
+                    SingleConnectionDataSource dataSource = new SingleConnectionDataSource(connection, true);
+                    migrate(new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+                    return null;
+                });
+            } catch (DataAccessException e) {
+                log.error("Log schema migration failed, it resumes on the next start", e);
+            }
+        });
+    }
+
+    /**
+     * Whether the migration {@code name} has finished, on this or any other node. Completion is final,
+     * so a positive answer is remembered.
+     */
+    public boolean isCompleted(String name) {
+        if (completed.contains(name)) {
+            return true;
+        }
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('log_schema_migration') IS NOT NULL", Boolean.class))) {
+            return false;
+        }
+        if (isCompleted(jdbcTemplate, name)) {
+            completed.add(name);
+            return true;
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    private void migrate(JdbcTemplate session, TransactionTemplate transactionTemplate) {
+        if (!Boolean.TRUE.equals(session.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, LOCK_KEY))) {
+            log.info("Log schema migration is running on another node");
+            return;
+        }
+        try {
+            session.execute(CREATE_MIGRATION_TABLE);
+            session.execute(CREATE_QUARANTINE_TABLE);
+            if (migrateActionDataToJsonb(session, transactionTemplate)) {
+                createPartitionedIndex(session, "log_action_data_idx", "gin (action_data jsonb_path_ops)");
+                if (migrateSearchVector(session, transactionTemplate)) {
+                    createPartitionedIndex(session, "log_search_vector_idx", "gin (search_vector)");
+                }
+            }
+        } finally {
+            session.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, LOCK_KEY);
+        }
+    }
+
+    /**
+     * Copies action_data into a jsonb column and swaps the two once every row is copied. Values that
+     * are not valid JSON are kept in log_quarantine and end up as NULL.
+     */
+    private boolean migrateActionDataToJsonb(JdbcTemplate session, TransactionTemplate transactionTemplate) {
+        if (isCompleted(session, ACTION_DATA_JSONB)) {
+            return true;
+        }
+        if ("jsonb".equals(columnType(session, "action_data"))) {
+            complete(session, ACTION_DATA_JSONB);
+            return true;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            session.execute("ALTER TABLE log ADD COLUMN IF NOT EXISTS action_data_jsonb jsonb");
+            session.execute("CREATE OR REPLACE FUNCTION log_copy_action_data() RETURNS trigger AS $$ " +
+                    "BEGIN NEW.action_data_jsonb := log_try_jsonb(NEW.action_data); RETURN NEW; END " +
+                    "$$ LANGUAGE plpgsql");
+            session.execute("DROP TRIGGER IF EXISTS log_copy_action_data ON log");
+            session.execute("CREATE TRIGGER log_copy_action_data BEFORE INSERT OR UPDATE OF action_data ON log " +
+                    "FOR EACH ROW EXECUTE FUNCTION log_copy_action_data()");
+        });
+        boolean finished = backfill(session, transactionTemplate, ACTION_DATA_JSONB, range -> {
+            session.update("UPDATE log SET action_data_jsonb = log_try_jsonb(action_data) WHERE " + BATCH_RANGE, range);
+            int quarantined = session.update("INSERT INTO log_quarantine (id, created_at, reason, row_data) " +
+                    "SELECT id, created_at, 'action_data is not valid JSON', to_jsonb(l) FROM log l " +
+                    "WHERE action_data IS NOT NULL AND action_data_jsonb IS NULL AND " + BATCH_RANGE, range);
+            if (quarantined > 0) {
+                log.warn("Quarantined [{}] log rows whose action_data is not valid JSON", quarantined);
+            }
+        });
+        if (!finished) {
+            return false;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            session.execute("DROP TRIGGER log_copy_action_data ON log");
+            session.execute("ALTER TABLE log DROP COLUMN action_data");
+            session.execute("ALTER TABLE log RENAME COLUMN action_data_jsonb TO action_data");
+            session.execute("DROP FUNCTION log_copy_action_data()");
+            complete(session, ACTION_DATA_JSONB);
+        });
+        log.info("Converted log.action_data to jsonb");
+        return true;
+    }
+
+    /**
+     * Fills search_vector from action_data and action_failure_details. A trigger replaces the former
+     * generated column, which could only be added by rewriting the whole table.
+     */
+    private boolean migrateSearchVector(JdbcTemplate session, TransactionTemplate transactionTemplate) {
+        if (isCompleted(session, SEARCH_VECTOR)) {
+            return true;
+        }
+        Boolean generated = session.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_attribute " +
+                "WHERE attrelid = 'log'::regclass AND attname = 'search_vector' AND attgenerated = 's')", Boolean.class);
+        if (Boolean.TRUE.equals(generated)) {
+            complete(session, SEARCH_VECTOR);
+            return true;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            session.execute("CREATE EXTENSION IF NOT EXISTS unaccent");
+            Integer configs = session.queryForObject(
+                    "SELECT COUNT(*) FROM pg_ts_config WHERE cfgname = 'audit_search'", Integer.class);
+            if (configs == null || configs == 0) {
+                session.execute("CREATE TEXT SEARCH CONFIGURATION audit_search (COPY = simple)");
+                session.execute("ALTER TEXT SEARCH CONFIGURATION audit_search " +
+                        "ALTER MAPPING FOR hword, hword_part, word WITH unaccent, simple");
+            }
+            // Only string values of action_data are indexed, keys and JSON punctuation stay out of the vector
+            session.execute("CREATE OR REPLACE FUNCTION log_search_vector(data jsonb, failure text) RETURNS tsvector " +
+                    "AS 'SELECT jsonb_to_tsvector(''audit_search'', COALESCE(data, ''{}''::jsonb), ''[\"string\"]'') || " +
+                    "to_tsvector(''audit_search'', COALESCE(failure, ''''))' LANGUAGE sql IMMUTABLE");
+            session.execute("CREATE OR REPLACE FUNCTION log_update_search_vector() RETURNS trigger AS $$ " +
+                    "BEGIN NEW.search_vector := log_search_vector(NEW.action_data, NEW.action_failure_details); RETURN NEW; END " +
+                    "$$ LANGUAGE plpgsql");
+            session.execute("ALTER TABLE log ADD COLUMN IF NOT EXISTS search_vector tsvector");
+            session.execute("DROP TRIGGER IF EXISTS log_update_search_vector ON log");
+            session.execute("CREATE TRIGGER log_update_search_vector " +
+                    "BEFORE INSERT OR UPDATE OF action_data, action_failure_details ON log " +
+                    "FOR EACH ROW EXECUTE FUNCTION log_update_search_vector()");
+        });
+        boolean finished = backfill(session, transactionTemplate, SEARCH_VECTOR, range ->
+                session.update("UPDATE log SET search_vector = log_search_vector(action_data, action_failure_details) " +
+                        "WHERE " + BATCH_RANGE, range));
+        if (!finished) {
+            return false;
+        }
+        complete(session, SEARCH_VECTOR);
+        log.info("Filled log.search_vector");
+        return true;
+    }
+
+    /**
+     * Runs {@code batch} over consecutive primary key ranges of {@code batchSize} rows, each range in
+     * its own transaction together with the saved cursor. Returns false when stopped before the end.
+     */
+    private boolean backfill(JdbcTemplate session, TransactionTemplate transactionTemplate, String name, Batch batch) {
+        session.update("INSERT INTO log_schema_migration (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+        long rows = 0;
+        while (!stopped) {
+            Boolean more = transactionTemplate.execute(status -> {
+                Map<String, Object> cursor = session.queryForMap(
+                        "SELECT cursor_id, cursor_created_at FROM log_schema_migration WHERE name = ?", name);
+                UUID fromId = (UUID) cursor.get("cursor_id");
+                Timestamp fromCreatedAt = (Timestamp) cursor.get("cursor_created_at");
+                List<Map<String, Object>> end = session.queryForList(NEXT_BATCH_END,
+                        fromId, fromId, fromCreatedAt, batchSize);
+                if (end.isEmpty()) {
+                    return false;
+                }
+                UUID toId = (UUID) end.get(0).get("id");
+                Timestamp toCreatedAt = (Timestamp) end.get(0).get("created_at");
+                batch.run(new Object[]{fromId, fromId, fromCreatedAt, toId, toCreatedAt});
+                session.update("UPDATE log_schema_migration SET cursor_id = ?, cursor_created_at = ? WHERE name = ?",
+                        toId, toCreatedAt, name);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(more)) {
+                return true;
+            }
+            rows += batchSize;
+            if (rows % (batchSize * 100L) == 0) {
+                log.info("Log schema migration [{}] passed about [{}] rows", name, rows);
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the index partition by partition with CREATE INDEX CONCURRENTLY and attaches each one to
+     * an index created ON ONLY the parent, so writes are never blocked. Partitions created later get
+     * the index from the parent.
+     */
+    private void createPartitionedIndex(JdbcTemplate session, String name, String definition) {
+        if (isValidIndex(session, name)) {
+            return;
+        }
+        session.execute(String.format("CREATE INDEX IF NOT EXISTS %s ON ONLY log USING %s", name, definition));
+        List<String> partitions = session.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'log'::regclass ORDER BY c.relname",
+                String.class);
+        for (String partition : partitions) {
+            if (stopped) return;
+            String partitionIndex = partition + "_" + name.substring("log_".length());
+            if (session.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partitionIndex)
+                    && !isValidIndex(session, partitionIndex)) {
+                // Left behind by an interrupted concurrent build
+                session.execute(String.format("DROP INDEX CONCURRENTLY %s", partitionIndex));
+            }
+            session.execute(String.format("CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON %s USING %s",
+                    partitionIndex, partition, definition));
+            session.execute(String.format("ALTER INDEX %s ATTACH PARTITION %s", name, partitionIndex));
+        }
+        log.info("Created log index [{}]", name);
+    }
+
+    private boolean isValidIndex(JdbcTemplate session, String name) {
+        return Boolean.TRUE.equals(session.queryForObject(
+                "SELECT COALESCE((SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)), false)",
+                Boolean.class, name));
+    }
+
+    private String columnType(JdbcTemplate session, String column) {
+        List<String> types = session.queryForList("SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'log' AND column_name = ?", String.class, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    private boolean isCompleted(JdbcTemplate session, String name) {
+        return Boolean.TRUE.equals(session.queryForObject("SELECT EXISTS (SELECT 1 FROM log_schema_migration " +
+                "WHERE name = ? AND completed_at IS NOT NULL)", Boolean.class, name));
+    }
+
+    private void complete(JdbcTemplate session, String name) {
+        session.update("INSERT INTO log_schema_migration (name, completed_at) VALUES (?, now()) " +
+                "ON CONFLICT (name) DO UPDATE SET completed_at = EXCLUDED.completed_at", name);
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        void run(Object[] range);
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.callbotsms.data;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogTableManager implements ApplicationRunner {
+
+    private static final String PARTITION_PREFIX = "log_p";
+    private static final String LEGACY_PARTITION = "log_legacy";
+    private static final String LEGACY_BOUND_CHECK = "log_legacy_created_at_bound";
+    private static final int LEGACY_DELETE_BATCH = 10000;
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern CHECK_BOUND = Pattern.compile("created_at < '(\\d{4}-\\d{2}-\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final long MIGRATION_LOCK_KEY = 0x4c4f47504152544eL;
+
+    private static final String CREATE_PARTITIONED_LOG = "CREATE TABLE log (" +
+            "id uuid NOT NULL, " +
+            "tenant_id uuid, " +
+            "created_by uuid, " +
+            "entity_id uuid, " +
+            "entity_type varchar(255), " +
+            "action_status varchar(255), " +
+            "action_type varchar(255), " +
+            "action_data jsonb, " +
+            "action_failure_details varchar(10485760), " +
+            "created_at timestamp NOT NULL, " +
+            "occurrence_count integer NOT NULL DEFAULT 1, " +
+            "last_occurred_at timestamp, " +
+            "PRIMARY KEY (id, created_at)" +
+            ") PARTITION BY RANGE (created_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LogSchemaMigration logSchemaMigration;
+
+    @Value("${app.audit.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audit.partition.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${app.audit.partition.retention-months:0}")
+    private int retentionMonths;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        migrateToPartitionedTable();
+        transactionTemplate.executeWithoutResult(status -> createActionDataFunction());
+        transactionTemplate.executeWithoutResult(status -> migrateOccurrences());
+        maintainPartitions();
+        // Backfills run in the background, the application serves requests meanwhile
+        logSchemaMigration.start();
+    }
+
+    @Scheduled(cron = "${app.audit.partition.maintenance-cron:0 0 1 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) return;
+        createFuturePartitions();
+        dropExpiredPartitions();
+    }
+
+    private void migrateToPartitionedTable() {
+        // SET NOT NULL and ATTACH PARTITION skip their scans of log_legacy when a validated check already
+        // implies the bound, and VALIDATE CONSTRAINT does that scan without blocking writers
+        String upperBound = transactionTemplate.execute(status -> lockMigration() ? prepareLegacyTable() : null);
+        if (upperBound != null) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute(
+                    String.format("ALTER TABLE log VALIDATE CONSTRAINT %s", LEGACY_BOUND_CHECK)));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (lockMigration()) {
+                createPartitionedTable();
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS log_default PARTITION OF log DEFAULT");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS log_tenant_id_created_at_idx ON log (tenant_id, created_at)");
+        });
+    }
+
+    // Waits for any other node converting the table and tells whether log is still not partitioned afterwards
+    private boolean lockMigration() {
+        jdbcTemplate.execute(String.format("SELECT pg_advisory_xact_lock(%d)", MIGRATION_LOCK_KEY));
+        return !"p".equals(logRelkind());
+    }
+
+    private String logRelkind() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT relkind::text FROM pg_class WHERE oid = to_regclass('log')), '')",
+                String.class);
+    }
+
+    private String legacyBound() {
+        String check = jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT pg_get_constraintdef(oid) FROM pg_constraint " +
+                        "WHERE conrelid = to_regclass('log') AND conname = ?), '')",
+                String.class, LEGACY_BOUND_CHECK);
+        Matcher bound = CHECK_BOUND.matcher(check != null ? check : "");
+        return bound.find() ? bound.group(1) : null;
+    }
+
+    private String prepareLegacyTable() {
+        if (!"r".equals(logRelkind())) {
+            return null;
+        }
+        String existing = legacyBound();
+        if (existing != null) {
+            return existing;
+        }
+        // Keep the existing rows in place as one partition covering everything up to the end of its last month
+        String upperBound = jdbcTemplate.queryForObject(
+                "SELECT to_char(date_trunc('month', GREATEST(MAX(created_at), now())) + interval '1 month', " +
+                        "'YYYY-MM-DD') FROM log",
+                String.class);
+        // A row without created_at has no month to live in, it is kept aside instead of being given a made-up date
+        jdbcTemplate.execute(LogSchemaMigration.CREATE_QUARANTINE_TABLE);
+        int quarantined = jdbcTemplate.update("INSERT INTO log_quarantine (id, created_at, reason, row_data) " +
+                "SELECT id, created_at, 'created_at is NULL', to_jsonb(l) FROM log l WHERE created_at IS NULL");
+        if (quarantined > 0) {
+            jdbcTemplate.update("DELETE FROM log WHERE created_at IS NULL");
+            log.warn("Quarantined [{}] log rows without created_at", quarantined);
+        }
+        jdbcTemplate.execute(String.format("ALTER TABLE log ADD CONSTRAINT %s " +
+                "CHECK (created_at IS NOT NULL AND created_at < '%s') NOT VALID", LEGACY_BOUND_CHECK, upperBound));
+        return upperBound;
+    }
+
+    private void createPartitionedTable() {
+        if (!"r".equals(logRelkind())) {
+            jdbcTemplate.execute(CREATE_PARTITIONED_LOG);
+            log.info("Created partitioned log table");
+            return;
+        }
+        String upperBound = legacyBound();
+        if (upperBound == null) {
+            throw new IllegalStateException(String.format("Log table has no [%s] check to convert it with",
+                    LEGACY_BOUND_CHECK));
+        }
+        jdbcTemplate.execute("ALTER TABLE log RENAME TO log_legacy");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS log_pkey RENAME TO log_legacy_pkey");
+        jdbcTemplate.execute("ALTER TABLE log_legacy ALTER COLUMN created_at SET NOT NULL");
+        jdbcTemplate.execute("CREATE TABLE log (LIKE log_legacy INCLUDING DEFAULTS) PARTITION BY RANGE (created_at)");
+        jdbcTemplate.execute("ALTER TABLE log ADD PRIMARY KEY (id, created_at)");
+        jdbcTemplate.execute(String.format(
+                "ALTER TABLE log ATTACH PARTITION log_legacy FOR VALUES FROM (MINVALUE) TO ('%s')", upperBound));
+        jdbcTemplate.execute(String.format("ALTER TABLE log_legacy DROP CONSTRAINT %s", LEGACY_BOUND_CHECK));
+        log.info("Converted log table to a partitioned table, existing rows kept in log_legacy");
+    }
+
+    private void createActionDataFunction() {
+        // Plain SQL function so the planner inlines it and the containment can use the GIN index
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION logActionDataContains(data jsonb, filter text) RETURNS boolean " +
+                "AS 'SELECT data @> filter::jsonb' LANGUAGE sql IMMUTABLE");
+        // Overload for the text column the background migration converts, invalid JSON never matches
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION log_try_jsonb(data text) RETURNS jsonb AS $$ " +
+                "BEGIN RETURN data::jsonb; EXCEPTION WHEN others THEN RETURN NULL; END " +
+                "$$ LANGUAGE plpgsql IMMUTABLE");
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION logActionDataContains(data text, filter text) RETURNS boolean " +
+                "AS 'SELECT COALESCE(log_try_jsonb(data) @> filter::jsonb, false)' LANGUAGE sql IMMUTABLE");
+    }
+
+    private void migrateOccurrences() {
+        jdbcTemplate.execute("ALTER TABLE log ADD COLUMN IF NOT EXISTS occurrence_count integer NOT NULL DEFAULT 1");
+        jdbcTemplate.execute("ALTER TABLE log ADD COLUMN IF NOT EXISTS last_occurred_at timestamp");
+    }
+
+    private void createFuturePartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            String partition = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+            try {
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF log FOR VALUES FROM ('%s') TO ('%s')",
+                        partition, month.atDay(1), month.plusMonths(1).atDay(1)));
+            } catch (DataAccessException e) {
+                // The month is still covered by log_legacy right after the migration
+                log.debug("Skipped log partition [{}]: {}", partition, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        if (retentionMonths <= 0) return;
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'log'::regclass AND c.relname LIKE 'log\\_p%'",
+                String.class);
+        for (String partition : partitions) {
+            YearMonth month;
+            try {
+                month = YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (month.isBefore(oldestKept)) {
+                jdbcTemplate.execute(String.format("ALTER TABLE log DETACH PARTITION %s", partition));
+                jdbcTemplate.execute(String.format("DROP TABLE %s", partition));
+                log.info("Dropped expired log partition [{}]", partition);
+            }
+        }
+        expireLegacyRows(oldestKept.atDay(1));
+    }
+
+    // log_legacy spans everything up to the end of the month it was converted in, so it is dropped once
+    // all of that is expired and trimmed row by row until then
+    private void expireLegacyRows(LocalDate cutoff) {
+        String bound = jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'log'::regclass AND c.relname = ?), '')",
+                String.class, LEGACY_PARTITION);
+        Matcher upperBound = UPPER_BOUND.matcher(bound != null ? bound : "");
+        if (!upperBound.find()) return;
+        if (!LocalDate.parse(upperBound.group(1)).isAfter(cutoff)) {
+            jdbcTemplate.execute(String.format("ALTER TABLE log DETACH PARTITION %s", LEGACY_PARTITION));
+            jdbcTemplate.execute(String.format("DROP TABLE %s", LEGACY_PARTITION));
+            log.info("Dropped expired log partition [{}]", LEGACY_PARTITION);
+            return;
+        }
+        long deleted = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update(String.format("DELETE FROM %1$s WHERE ctid IN " +
+                    "(SELECT ctid FROM %1$s WHERE created_at < ? LIMIT %2$d)", LEGACY_PARTITION, LEGACY_DELETE_BATCH),
+                    Timestamp.valueOf(cutoff.atStartOfDay()));
+            deleted += batch;
+        } while (batch == LEGACY_DELETE_BATCH);
+        if (deleted > 0) {
+            log.info("Deleted [{}] expired rows from log partition [{}]", deleted, LEGACY_PARTITION);
+        }
+    }
+}
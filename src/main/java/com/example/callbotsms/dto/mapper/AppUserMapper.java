@@ -4,6 +4,7 @@ import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.response.UserProfileResponse;
 import com.im.sso.model.AppUser;
 import com.im.sso.model.Contact;
+import com.im.sso.repository.AppUserRepository;
 import com.im.sso.service.ContactService;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -23,6 +24,9 @@ public interface AppUserMapper {
     @Mapping(target = "contactId", source = "user.contact", qualifiedByName = "contactToUUID")
     AppUserDto toDto(AppUser user);
 
+    @Mapping(source = "id", target = "avatar", qualifiedByName = "getAvatarUrl")
+    AppUserDto toDto(AppUserRepository.SyncView user);
+
     @Named("contactToUUID")
     default UUID contactToUUID(Contact contact) {
         return contact != null ? contact.getId() : null;
@@ -0,0 +1,83 @@
+package com.example.callbotsms.dto.model;
+
+import com.example.callbotsms.model.enums.AppInfoType;
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of every {@code DataKv} row, replaced as a whole when any of them changes.
+ */
+@Value
+public class AppSettings {
+
+    Map<AppInfoType, String> values;
+
+    List<DataKvDto> info;
+
+    List<DataKvDto> publicInfo;
+
+    ResourceVersionDto version;
+
+    public static AppSettings of(List<DataKvDto> rows) {
+        Map<AppInfoType, String> values = new EnumMap<>(AppInfoType.class);
+        for (AppInfoType type : AppInfoType.values()) {
+            rows.stream()
+                    .filter(row -> type.name().equals(row.getKey()))
+                    .findFirst()
+                    .ifPresent(row -> values.put(type, row.getValue()));
+        }
+        List<DataKvDto> info = rows.stream()
+                .sorted(Comparator.comparing(DataKvDto::getKey))
+                .collect(Collectors.toUnmodifiableList());
+        List<DataKvDto> publicInfo = info.stream()
+                .filter(row -> isPublicInfo(row.getKey()))
+                .collect(Collectors.toUnmodifiableList());
+        long lastModified = rows.stream()
+                .map(DataKvDto::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .mapToLong(Date::getTime)
+                .max()
+                .orElse(0L);
+        return new AppSettings(
+                Collections.unmodifiableMap(values),
+                info,
+                publicInfo,
+                new ResourceVersionDto(String.format("\"%d-%d\"", lastModified, rows.size()), lastModified)
+        );
+    }
+
+    private static boolean isPublicInfo(String key) {
+        for (AppInfoType type : AppInfoType.values()) {
+            if (type.name().equals(key)) {
+                return type.isPublicInfo();
+            }
+        }
+        return false;
+    }
+
+    public String get(AppInfoType type) {
+        return values.get(type);
+    }
+
+    public boolean isSignUpAvailable() {
+        return Boolean.parseBoolean(values.get(AppInfoType.SIGNUP_AVAILABLE));
+    }
+
+    public String getDefaultTenantEmail() {
+        return values.get(AppInfoType.DEFAULT_TENANT_EMAIL);
+    }
+
+    public UUID getDefaultContactId() {
+        String contactId = values.get(AppInfoType.DEFAULT_CONTACT_ID);
+        return contactId != null ? UUID.fromString(contactId) : null;
+    }
+}
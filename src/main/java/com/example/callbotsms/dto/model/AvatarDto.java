@@ -0,0 +1,16 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.Resource;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvatarDto {
+    private Resource resource;
+    private String contentType;
+    private long contentLength;
+    private long lastModified;
+}
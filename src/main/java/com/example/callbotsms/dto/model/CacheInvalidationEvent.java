@@ -0,0 +1,26 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheInvalidationEvent {
+
+    public enum Scope {
+        KEY, TENANT, ALL
+    }
+
+    private String nodeId;
+    private String cache;
+    private Scope scope;
+    private String key;
+    private UUID tenantId;
+    private long publishedAt;
+}
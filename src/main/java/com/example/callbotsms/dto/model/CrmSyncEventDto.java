@@ -0,0 +1,19 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CrmSyncEventDto {
+
+    public enum Type {
+        USER, CONTACT
+    }
+
+    private Type type;
+    private AppUserDto user;
+    private ContactDto contact;
+}
@@ -1,5 +1,6 @@
 package com.example.callbotsms.dto.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.im.sso.model.enums.ActionStatus;
 import com.im.sso.model.enums.ActionType;
@@ -23,8 +24,12 @@ public class LogDto {
     private EntityType entityType;
     private AppUserDto createdBy;
     private JsonNode actionData;
+    @JsonIgnore
+    private Object actionPayload;
     private ActionStatus actionStatus;
     private ActionType actionType;
     private String actionFailureDetails;
     private Date createdAt;
+    private Integer occurrenceCount;
+    private Date lastOccurredAt;
 }
@@ -0,0 +1,21 @@
+package com.example.callbotsms.dto.model;
+
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LogRollupDto {
+    private Date bucket;
+    private EntityType entityType;
+    private ActionType actionType;
+    private ActionStatus actionStatus;
+    private long count;
+}
@@ -0,0 +1,13 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceVersionDto {
+    private String etag;
+    private long lastModified;
+}
@@ -0,0 +1,31 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class UserSyncStatusDto {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    private State state;
+    private boolean delta;
+    private Date since;
+    private Date startedAt;
+    private Date finishedAt;
+    private long chunks;
+    private long sent;
+    private long acknowledged;
+    private long failed;
+    private String error;
+    private Date watermark;
+}
@@ -0,0 +1,33 @@
+package com.example.callbotsms.dto.model;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Cached white label of a tenant: the small JSON part and the decoded logo with its precompressed variant.
+ */
+@Value
+public class WhiteLabelAsset {
+
+    UUID tenantId;
+
+    WhiteLabelDto whiteLabel;
+
+    byte[] logo;
+
+    // Null when compressing does not pay off, e.g. for PNG or JPEG logos
+    byte[] gzipLogo;
+
+    String logoContentType;
+
+    String logoVersion;
+
+    String etag;
+
+    long lastModified;
+
+    public boolean hasLogo() {
+        return logo != null;
+    }
+}
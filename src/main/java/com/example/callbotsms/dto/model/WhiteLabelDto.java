@@ -18,6 +18,9 @@ public class WhiteLabelDto {
 
     private String logoImage;
 
+    // Versioned link to the binary logo, filled in on reads instead of the inline logoImage
+    private String logoUrl;
+
     private String appTitle;
 
     @JsonIgnore
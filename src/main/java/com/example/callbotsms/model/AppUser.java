@@ -9,6 +9,7 @@ import lombok.Setter;
 
 import javax.persistence.*;
 import java.util.Collection;
+import java.util.Date;
 import java.util.UUID;
 
 @Setter
@@ -16,7 +17,10 @@ import java.util.UUID;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "app_user")
+@Table(name = "app_user", indexes = {
+        @Index(name = "idx_app_user_updated_at", columnList = "updatedAt"),
+        @Index(name = "idx_app_user_crm_contact_id", columnList = "crmContactId")
+})
 public class AppUser extends BaseEntity implements HasTenantId {
 
     @Column(unique = true, nullable = false)
@@ -34,6 +38,12 @@ public class AppUser extends BaseEntity implements HasTenantId {
 
     private UUID tenantId;
 
+    // Version of the last CRM update applied, updatedAt stays on the local clock
+    private Date crmUpdatedAt;
+
+    // Contact the CRM links this user to, copied to the contact relation once that contact exists
+    private UUID crmContactId;
+
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL)
     private UserCredential userCredential;
 }
@@ -6,6 +6,7 @@ import com.im.sso.model.enums.EntityType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 
@@ -25,7 +26,14 @@ public class Log {
     private UUID tenantId;
     private UUID createdBy;
     private UUID entityId;
-    @Column(length = 10485760)
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+    @Enumerated(EnumType.STRING)
+    private ActionStatus actionStatus;
+    @Enumerated(EnumType.STRING)
+    private ActionType actionType;
+    @Column(columnDefinition = "jsonb")
+    @ColumnTransformer(write = "?::jsonb")
     private String actionData;
 
     @Column(length = 10485760)
@@ -33,4 +41,7 @@ public class Log {
     @CreationTimestamp
     @Column(updatable = false)
     private Date createdAt;
+    @Column(nullable = false, columnDefinition = "integer default 1")
+    private int occurrenceCount = 1;
+    private Date lastOccurredAt;
 }
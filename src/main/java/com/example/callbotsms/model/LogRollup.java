@@ -0,0 +1,40 @@
+package com.example.callbotsms.model;
+
+import com.example.callbotsms.model.enums.RollupGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "log_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "log_rollup_key",
+        columnNames = {"tenant_id", "granularity", "bucket", "entity_type", "action_type", "action_status"}
+))
+public class LogRollup {
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    private UUID id;
+    @Column(nullable = false)
+    private UUID tenantId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupGranularity granularity;
+    @Column(nullable = false)
+    private Date bucket;
+    @Column(nullable = false)
+    private String entityType;
+    @Column(nullable = false)
+    private String actionType;
+    @Column(nullable = false)
+    private String actionStatus;
+    private long count;
+}
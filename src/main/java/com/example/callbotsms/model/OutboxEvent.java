@@ -0,0 +1,44 @@
+package com.example.callbotsms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_event", indexes = @Index(name = "outbox_event_sent_at_created_at_idx", columnList = "sentAt, createdAt"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    private UUID id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    private String messageKey;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Date createdAt;
+
+    private Date sentAt;
+
+    private int attempts;
+
+    // Set once attempts reach the relay limit, the event is kept for inspection and never sent again
+    private Date parkedAt;
+}
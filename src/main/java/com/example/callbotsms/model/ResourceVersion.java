@@ -0,0 +1,24 @@
+package com.example.callbotsms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceVersion {
+
+    @Id
+    private UUID id;
+
+    private long version;
+
+    private Date updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.callbotsms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.Date;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncWatermark {
+
+    @Id
+    private String name;
+
+    private Date watermark;
+
+    private Date updatedAt;
+}
@@ -1,14 +1,27 @@
 package com.example.callbotsms.model.enums;
 
+import com.example.callbotsms.exception.BadRequestException;
+
 import java.util.Arrays;
 
 public enum AppInfoType {
-    APP_VERSION,
-    APP_HOTLINE,
-    HOSTNAME,
-    SIGNUP_AVAILABLE,
-    DEFAULT_TENANT_EMAIL,
-    DEFAULT_CONTACT_ID;
+    APP_VERSION(true),
+    APP_HOTLINE(true),
+    HOSTNAME(true),
+    SIGNUP_AVAILABLE(true),
+    DEFAULT_TENANT_EMAIL(false),
+    DEFAULT_CONTACT_ID(false);
+
+    // Whether the value is served to anonymous callers of api/noauth/info
+    private final boolean publicInfo;
+
+    AppInfoType(boolean publicInfo) {
+        this.publicInfo = publicInfo;
+    }
+
+    public boolean isPublicInfo() {
+        return publicInfo;
+    }
 
     public static AppInfoType lookup(final String id) {
         for (AppInfoType enumValue : values()) {
@@ -16,7 +29,7 @@ public enum AppInfoType {
                 return enumValue;
             }
         }
-        throw new RuntimeException(String.format("Invalid value for app info [%s]. " +
+        throw new BadRequestException(String.format("Invalid value for app info [%s]. " +
                 "It should be %s", id, Arrays.asList(AppInfoType.values())));
     }
 }
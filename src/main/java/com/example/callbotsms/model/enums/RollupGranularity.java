@@ -0,0 +1,29 @@
+package com.example.callbotsms.model.enums;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+public enum RollupGranularity {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public static RollupGranularity lookup(final String id) {
+        for (RollupGranularity enumValue : values()) {
+            if (enumValue.name().equalsIgnoreCase(id)) {
+                return enumValue;
+            }
+        }
+        throw new RuntimeException(String.format("Invalid value for rollup granularity [%s]. " +
+                "It should be %s", id, Arrays.asList(RollupGranularity.values())));
+    }
+}
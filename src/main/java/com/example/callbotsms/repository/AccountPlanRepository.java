@@ -1,14 +1,24 @@
 package com.example.callbotsms.repository;
 
+import com.example.callbotsms.config.HibernateCacheConfig;
 import com.im.sso.model.AccountPlan;
 import com.im.sso.model.enums.AccountPlanType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface AccountPlanRepository extends JpaRepository<AccountPlan, UUID> {
 
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = HibernateCacheConfig.REFERENCE_QUERY_REGION)
+    })
     Optional<AccountPlan> findByName(AccountPlanType name);
 
 }
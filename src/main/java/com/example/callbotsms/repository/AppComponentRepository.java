@@ -1,20 +1,30 @@
 package com.example.callbotsms.repository;
 
+import com.example.callbotsms.config.HibernateCacheConfig;
 import com.im.sso.model.AppComponent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.UUID;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface AppComponentRepository extends JpaRepository<AppComponent, UUID> {
 
     Page<AppComponent> findAll(Pageable pageable);
 
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = HibernateCacheConfig.REFERENCE_QUERY_REGION)
+    })
     AppComponent findByName(String name);
 
     @Query(value = "SELECT a FROM AppComponent a WHERE :url LIKE '%' || a.urlBase || '%'")
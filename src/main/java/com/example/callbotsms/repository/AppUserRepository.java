@@ -8,13 +8,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface AppUserRepository extends JpaRepository<AppUser, UUID> {
@@ -71,4 +78,58 @@ public interface AppUserRepository extends JpaRepository<AppUser, UUID> {
 
     Optional<AppUser> findByIdAndAuthority(UUID id, AuthorityType authority);
 
+    Optional<VersionView> findVersionById(UUID id);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = SYNC_VIEW_SELECT)
+    Stream<SyncView> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = SYNC_VIEW_SELECT + " WHERE u.updatedAt > :since")
+    Stream<SyncView> streamUpdatedAfter(@Param("since") Date since);
+
+    // The avatar column holds up to 10 MB per row and is never part of a sync event, so it is not selected
+    String SYNC_VIEW_SELECT = "SELECT u.id AS id, u.email AS email, u.firstName AS firstName, " +
+            "u.lastName AS lastName, u.phone AS phone, u.authority AS authority, u.role AS role, " +
+            "u.tenantId AS tenantId, u.contact.id AS contactId, u.createdAt AS createdAt, " +
+            "u.updatedAt AS updatedAt, u.createdBy AS createdBy, u.updatedBy AS updatedBy FROM AppUser u";
+
+    interface VersionView {
+        Date getUpdatedAt();
+    }
+
+    interface SyncView {
+        UUID getId();
+
+        String getEmail();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getPhone();
+
+        AuthorityType getAuthority();
+
+        RoleType getRole();
+
+        UUID getTenantId();
+
+        UUID getContactId();
+
+        Date getCreatedAt();
+
+        Date getUpdatedAt();
+
+        UUID getCreatedBy();
+
+        UUID getUpdatedBy();
+    }
+
 }
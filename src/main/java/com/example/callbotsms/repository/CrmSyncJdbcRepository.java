@@ -0,0 +1,114 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.ContactDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+@Repository
+@RequiredArgsConstructor
+public class CrmSyncJdbcRepository {
+
+    // A row is only overwritten by a strictly newer version, so redelivered or reordered updates are no-ops.
+    // RETURNING lists the rows actually written, batch update counts can not once the driver rewrites batches
+    private static final String UPSERT_CONTACTS = "INSERT INTO contact (id, name, tax_number, email, phone, field, " +
+            "description, avatar, is_deleted, tenant_id, created_at, updated_at) " +
+            "SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], " +
+            "?::varchar[], ?::varchar[], ?::boolean[], ?::uuid[], ?::timestamp[], ?::timestamp[]) " +
+            "ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, tax_number = EXCLUDED.tax_number, " +
+            "email = EXCLUDED.email, phone = EXCLUDED.phone, field = EXCLUDED.field, " +
+            "description = EXCLUDED.description, avatar = EXCLUDED.avatar, is_deleted = EXCLUDED.is_deleted, " +
+            "tenant_id = EXCLUDED.tenant_id, updated_at = EXCLUDED.updated_at " +
+            "WHERE contact.updated_at IS NULL OR contact.updated_at < EXCLUDED.updated_at " +
+            "RETURNING id";
+
+    // The CRM's timestamp only orders CRM updates, updated_at is stamped here so delta syncs and ETags move forward
+    private static final String UPDATE_USERS = "UPDATE app_user u SET first_name = v.first_name, " +
+            "last_name = v.last_name, phone = v.phone, crm_contact_id = v.contact_id, " +
+            "contact_id = CASE WHEN v.contact_id IS NULL OR EXISTS (SELECT 1 FROM contact c WHERE c.id = v.contact_id) " +
+            "THEN v.contact_id ELSE u.contact_id END, " +
+            "crm_updated_at = v.crm_updated_at, updated_at = now() " +
+            "FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::uuid[], ?::timestamp[]) " +
+            "AS v(id, first_name, last_name, phone, contact_id, crm_updated_at) " +
+            "WHERE u.id = v.id AND (u.crm_updated_at IS NULL OR u.crm_updated_at < v.crm_updated_at) " +
+            "RETURNING u.id";
+
+    // Users updated before their contact arrived, the contact may come on another partition
+    private static final String LINK_PENDING_CONTACTS = "UPDATE app_user SET contact_id = crm_contact_id, updated_at = now() " +
+            "WHERE crm_contact_id = ANY(?::uuid[]) AND contact_id IS DISTINCT FROM crm_contact_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the number of contacts inserted or updated, stale versions are not counted.
+     */
+    public int upsertContacts(List<ContactDto> contacts) {
+        return countReturned(UPSERT_CONTACTS, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("uuid", column(contacts, ContactDto::getId)));
+            ps.setArray(2, connection.createArrayOf("varchar", column(contacts, ContactDto::getName)));
+            ps.setArray(3, connection.createArrayOf("varchar", column(contacts, ContactDto::getTaxNumber)));
+            ps.setArray(4, connection.createArrayOf("varchar", column(contacts, ContactDto::getEmail)));
+            ps.setArray(5, connection.createArrayOf("varchar", column(contacts, ContactDto::getPhone)));
+            ps.setArray(6, connection.createArrayOf("varchar", column(contacts, ContactDto::getField)));
+            ps.setArray(7, connection.createArrayOf("varchar", column(contacts, ContactDto::getDescription)));
+            ps.setArray(8, connection.createArrayOf("varchar", column(contacts, ContactDto::getAvatar)));
+            ps.setArray(9, connection.createArrayOf("boolean", column(contacts,
+                    contact -> contact.getIsDeleted() != null ? contact.getIsDeleted() : Boolean.FALSE)));
+            ps.setArray(10, connection.createArrayOf("uuid", column(contacts, ContactDto::getTenantId)));
+            ps.setArray(11, connection.createArrayOf("timestamp", column(contacts, contact ->
+                    toTimestamp(contact.getCreatedAt() != null ? contact.getCreatedAt() : contact.getUpdatedAt()))));
+            ps.setArray(12, connection.createArrayOf("timestamp", column(contacts, contact -> toTimestamp(contact.getUpdatedAt()))));
+        });
+    }
+
+    /**
+     * Returns the number of users updated, unknown users and stale versions are not counted. A contact
+     * that does not exist yet is kept in crm_contact_id and linked by {@link #linkPendingContacts}.
+     */
+    public int updateUsers(List<AppUserDto> users) {
+        return countReturned(UPDATE_USERS, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("uuid", column(users, AppUserDto::getId)));
+            ps.setArray(2, connection.createArrayOf("varchar", column(users, AppUserDto::getFirstName)));
+            ps.setArray(3, connection.createArrayOf("varchar", column(users, AppUserDto::getLastName)));
+            ps.setArray(4, connection.createArrayOf("varchar", column(users, AppUserDto::getPhone)));
+            ps.setArray(5, connection.createArrayOf("uuid", column(users, AppUserDto::getContactId)));
+            ps.setArray(6, connection.createArrayOf("timestamp", column(users, user -> toTimestamp(user.getUpdatedAt()))));
+        });
+    }
+
+    public int linkPendingContacts(Collection<UUID> contactIds) {
+        return jdbcTemplate.update(LINK_PENDING_CONTACTS,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", contactIds.toArray())));
+    }
+
+    private int countReturned(String sql, PreparedStatementSetter setter) {
+        Integer count = jdbcTemplate.query(sql, setter, rs -> {
+            int rows = 0;
+            while (rs.next()) {
+                rows++;
+            }
+            return rows;
+        });
+        return count != null ? count : 0;
+    }
+
+    private static <T> Object[] column(List<T> rows, Function<T, Object> value) {
+        return rows.stream().map(value).toArray();
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+}
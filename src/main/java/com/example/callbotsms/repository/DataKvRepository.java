@@ -2,8 +2,14 @@ package com.example.callbotsms.repository;
 
 import com.im.sso.model.DataKv;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+
 @Repository
 public interface DataKvRepository extends JpaRepository<DataKv, String> {
+
+    @Query(value = "SELECT MAX(d.updatedAt) FROM DataKv d")
+    Date findLastUpdatedAt();
 }
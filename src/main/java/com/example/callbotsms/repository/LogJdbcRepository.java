@@ -0,0 +1,105 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.LogRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class LogJdbcRepository {
+
+    // One statement per batch; RETURNING reports the rows that were new, which batch update counts
+    // can not do once the driver rewrites batched inserts
+    private static final String INSERT_LOGS = "INSERT INTO log (id, tenant_id, created_by, entity_id, entity_type, " +
+            "action_status, action_type, action_data, action_failure_details, created_at, " +
+            "occurrence_count, last_occurred_at) " +
+            "SELECT id, tenant_id, created_by, entity_id, entity_type, action_status, action_type, " +
+            "action_data::jsonb, action_failure_details, created_at, occurrence_count, last_occurred_at " +
+            "FROM unnest(?::uuid[], ?::uuid[], ?::uuid[], ?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], " +
+            "?::text[], ?::varchar[], ?::timestamp[], ?::integer[], ?::timestamp[]) " +
+            "AS l(id, tenant_id, created_by, entity_id, entity_type, action_status, action_type, " +
+            "action_data, action_failure_details, created_at, occurrence_count, last_occurred_at) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING id";
+
+    private static final String UPSERT_ROLLUP = "INSERT INTO log_rollup (id, tenant_id, granularity, bucket, " +
+            "entity_type, action_type, action_status, count) " +
+            "VALUES (gen_random_uuid(), ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (tenant_id, granularity, bucket, entity_type, action_type, action_status) " +
+            "DO UPDATE SET count = log_rollup.count + EXCLUDED.count";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the logs, skipping ids that are already stored, and returns the ones actually inserted.
+     */
+    public List<Log> batchInsert(List<Log> logs) {
+        if (logs.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> inserted = new HashSet<>(jdbcTemplate.execute((ConnectionCallback<List<UUID>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_LOGS)) {
+                ps.setArray(1, connection.createArrayOf("uuid", column(logs, Log::getId)));
+                ps.setArray(2, connection.createArrayOf("uuid", column(logs, Log::getTenantId)));
+                ps.setArray(3, connection.createArrayOf("uuid", column(logs, Log::getCreatedBy)));
+                ps.setArray(4, connection.createArrayOf("uuid", column(logs, Log::getEntityId)));
+                ps.setArray(5, connection.createArrayOf("varchar", column(logs, log -> nameOf(log.getEntityType()))));
+                ps.setArray(6, connection.createArrayOf("varchar", column(logs, log -> nameOf(log.getActionStatus()))));
+                ps.setArray(7, connection.createArrayOf("varchar", column(logs, log -> nameOf(log.getActionType()))));
+                ps.setArray(8, connection.createArrayOf("text", column(logs, Log::getActionData)));
+                ps.setArray(9, connection.createArrayOf("varchar", column(logs, Log::getActionFailureDetails)));
+                ps.setArray(10, connection.createArrayOf("timestamp", column(logs, log -> toTimestamp(log.getCreatedAt()))));
+                ps.setArray(11, connection.createArrayOf("integer", column(logs, Log::getOccurrenceCount)));
+                ps.setArray(12, connection.createArrayOf("timestamp", column(logs, log -> toTimestamp(log.getLastOccurredAt()))));
+                List<UUID> ids = new ArrayList<>(logs.size());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getObject(1, UUID.class));
+                    }
+                }
+                return ids;
+            }
+        }));
+        // An id repeated within the batch is inserted once, so it is only returned once
+        return logs.stream().filter(log -> inserted.remove(log.getId())).collect(Collectors.toList());
+    }
+
+    public void incrementRollups(List<LogRollup> rollups) {
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, rollups, rollups.size(), (ps, rollup) -> {
+            ps.setObject(1, rollup.getTenantId());
+            ps.setString(2, rollup.getGranularity().name());
+            ps.setTimestamp(3, new Timestamp(rollup.getBucket().getTime()));
+            ps.setString(4, rollup.getEntityType());
+            ps.setString(5, rollup.getActionType());
+            ps.setString(6, rollup.getActionStatus());
+            ps.setLong(7, rollup.getCount());
+        });
+    }
+
+    private static Object[] column(List<Log> logs, Function<Log, Object> value) {
+        return logs.stream().map(value).toArray();
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+}
@@ -8,20 +8,36 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// A null tenant matches the logs written without one, as the rollups and the archive do
 public interface LogRepository extends JpaRepository<Log, UUID> {
+
+    String SEARCH_LOGS_CONDITION = "FROM log l " +
+            "WHERE (l.tenant_id = CAST(:tenantId AS uuid) OR (CAST(:tenantId AS uuid) IS NULL AND l.tenant_id IS NULL)) " +
+            "AND (CAST(:entityType AS varchar) IS NULL OR l.entity_type = CAST(:entityType AS varchar)) " +
+            "AND (CAST(:actionStatus AS varchar) IS NULL OR l.action_status = CAST(:actionStatus AS varchar)) " +
+            "AND (CAST(:actionType AS varchar) IS NULL OR l.action_type = CAST(:actionType AS varchar)) " +
+            "AND (CAST(:entityId AS uuid) IS NULL OR l.entity_id = CAST(:entityId AS uuid)) " +
+            "AND (CAST(:userId AS uuid) IS NULL OR l.created_by = CAST(:userId AS uuid)) " +
+            "AND l.created_at BETWEEN :createdAtStartTs AND :createdAtEndTs " +
+            "AND (CAST(:actionDataFilter AS text) IS NULL OR l.action_data @> CAST(:actionDataFilter AS jsonb)) " +
+            "AND l.search_vector @@ to_tsquery('audit_search', :tsQuery) ";
+
     @Query(value = "SELECT l FROM Log l " +
-            "WHERE l.tenantId = :tenantId " +
+            "WHERE (l.tenantId = :tenantId " +
+            "OR (cast(:tenantId as org.hibernate.type.PostgresUUIDType) IS NULL AND l.tenantId IS NULL)) " +
             "AND (:entityType IS NULL OR l.entityType = :entityType) " +
             "AND (:actionStatus IS NULL OR l.actionStatus = :actionStatus) " +
             "AND (:actionType IS NULL OR l.actionType = :actionType) " +
             "AND (cast(:entityId as org.hibernate.type.PostgresUUIDType) IS NULL OR l.entityId = :entityId) " +
             "AND (cast(:userId as org.hibernate.type.PostgresUUIDType) IS NULL OR l.createdBy = :userId) " +
-            "AND (l.createdAt BETWEEN COALESCE(:createdAtStartTs, l.createdAt) AND COALESCE(:createdAtEndTs, l.createdAt)) " +
-            "AND (convertToNonSigned(l.actionData, :isSearchMatchCase) LIKE CONCAT('%',:searchText,'%') " +
+            "AND l.createdAt BETWEEN :createdAtStartTs AND :createdAtEndTs " +
+            "AND (:actionDataFilter IS NULL OR logActionDataContains(l.actionData, :actionDataFilter) = true) " +
+            "AND (:searchText = '' OR convertToNonSigned(cast(l.actionData as string), :isSearchMatchCase) LIKE CONCAT('%',:searchText,'%') " +
             "OR convertToNonSigned(l.actionFailureDetails, :isSearchMatchCase) LIKE CONCAT('%',:searchText,'%')) "
     )
     Page<Log> findLogs(
@@ -35,6 +51,44 @@ public interface LogRepository extends JpaRepository<Log, UUID> {
             LocalDateTime createdAtStartTs,
             LocalDateTime createdAtEndTs,
             UUID tenantId,
+            String actionDataFilter,
+            Pageable pageable
+    );
+
+    // Ranked by relevance, used when the caller gives no sort
+    @Query(value = "SELECT l.* " + SEARCH_LOGS_CONDITION +
+            "ORDER BY ts_rank(l.search_vector, to_tsquery('audit_search', :tsQuery)) DESC, l.created_at DESC",
+            countQuery = "SELECT COUNT(*) " + SEARCH_LOGS_CONDITION,
+            nativeQuery = true)
+    Page<Log> searchLogs(
+            @Param("tsQuery") String tsQuery,
+            @Param("entityType") String entityType,
+            @Param("entityId") String entityId,
+            @Param("userId") String userId,
+            @Param("actionStatus") String actionStatus,
+            @Param("actionType") String actionType,
+            @Param("createdAtStartTs") LocalDateTime createdAtStartTs,
+            @Param("createdAtEndTs") LocalDateTime createdAtEndTs,
+            @Param("tenantId") String tenantId,
+            @Param("actionDataFilter") String actionDataFilter,
+            Pageable pageable
+    );
+
+    // Same matches in the order the caller asked for, the sort of the pageable has to name log columns
+    @Query(value = "SELECT l.* " + SEARCH_LOGS_CONDITION,
+            countQuery = "SELECT COUNT(*) " + SEARCH_LOGS_CONDITION,
+            nativeQuery = true)
+    Page<Log> searchLogsSorted(
+            @Param("tsQuery") String tsQuery,
+            @Param("entityType") String entityType,
+            @Param("entityId") String entityId,
+            @Param("userId") String userId,
+            @Param("actionStatus") String actionStatus,
+            @Param("actionType") String actionType,
+            @Param("createdAtStartTs") LocalDateTime createdAtStartTs,
+            @Param("createdAtEndTs") LocalDateTime createdAtEndTs,
+            @Param("tenantId") String tenantId,
+            @Param("actionDataFilter") String actionDataFilter,
             Pageable pageable
     );
 }
@@ -0,0 +1,35 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.model.LogRollup;
+import com.example.callbotsms.model.enums.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LogRollupRepository extends JpaRepository<LogRollup, UUID> {
+
+    @Query(value = "SELECT r FROM LogRollup r " +
+            "WHERE r.tenantId = :tenantId " +
+            "AND r.granularity = :granularity " +
+            "AND r.bucket BETWEEN :startTs AND :endTs " +
+            "AND (:entityType IS NULL OR r.entityType = :entityType) " +
+            "AND (:actionType IS NULL OR r.actionType = :actionType) " +
+            "AND (:actionStatus IS NULL OR r.actionStatus = :actionStatus) " +
+            "ORDER BY r.bucket"
+    )
+    List<LogRollup> findRollups(
+            @Param("tenantId") UUID tenantId,
+            @Param("granularity") RollupGranularity granularity,
+            @Param("startTs") Date startTs,
+            @Param("endTs") Date endTs,
+            @Param("entityType") String entityType,
+            @Param("actionType") String actionType,
+            @Param("actionStatus") String actionStatus
+    );
+}
@@ -0,0 +1,45 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Held until the end of the relay transaction, a relay on another node gets false and skips its poll
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLockRelay(@Param("key") long key);
+
+    @Query(value = "SELECT * FROM outbox_event WHERE sent_at IS NULL AND parked_at IS NULL " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<OutboxEvent> lockUnsent(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE OutboxEvent e SET e.sentAt = :sentAt, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("sentAt") Date sentAt);
+
+    @Modifying
+    @Query(value = "UPDATE OutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markFailed(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query(value = "UPDATE OutboxEvent e SET e.parkedAt = :parkedAt, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markParked(@Param("ids") Collection<UUID> ids, @Param("parkedAt") Date parkedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM OutboxEvent e WHERE e.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") Date sentBefore);
+
+    @Query(value = "SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.sentAt IS NULL AND e.parkedAt IS NULL")
+    Date findOldestUnsentCreatedAt();
+}
@@ -0,0 +1,22 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.model.ResourceVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Repository
+public interface ResourceVersionRepository extends JpaRepository<ResourceVersion, UUID> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO resource_version (id, version, updated_at) VALUES (:id, 1, now()) " +
+            "ON CONFLICT (id) DO UPDATE SET version = resource_version.version + 1, updated_at = now()",
+            nativeQuery = true)
+    void increment(@Param("id") UUID id);
+}
@@ -0,0 +1,24 @@
+package com.example.callbotsms.repository;
+
+import com.example.callbotsms.model.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+
+    // Only ever moves forward, a slower concurrent run can not rewind a newer watermark
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO sync_watermark (name, watermark, updated_at) VALUES (:name, :watermark, now()) " +
+            "ON CONFLICT (name) DO UPDATE SET watermark = EXCLUDED.watermark, updated_at = now() " +
+            "WHERE sync_watermark.watermark IS NULL OR sync_watermark.watermark < EXCLUDED.watermark",
+            nativeQuery = true)
+    int advance(@Param("name") String name, @Param("watermark") Date watermark);
+}
@@ -0,0 +1,14 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppSettings;
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.model.enums.AppInfoType;
+
+public interface AppSettingsService {
+
+    AppSettings getSettings();
+
+    AppSettings update(AppInfoType type, String value, AppUserDto currentUser);
+
+    AppSettings refresh();
+}
@@ -0,0 +1,123 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppSettings;
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.DataKvDto;
+import com.example.callbotsms.dto.model.LogDto;
+import com.example.callbotsms.exception.BadRequestException;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.AppInfoType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.repository.DataKvRepository;
+import com.im.sso.model.DataKv;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class AppSettingsServiceImpl implements AppSettingsService {
+
+    public static final String APP_SETTINGS_CACHE = "appSettings";
+
+    private final DataKvRepository dataKvRepository;
+
+    private final LogService logService;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final AtomicReference<AppSettings> settings = new AtomicReference<>();
+
+    public AppSettingsServiceImpl(
+            DataKvRepository dataKvRepository,
+            LogService logService,
+            CacheInvalidationBus cacheInvalidationBus,
+            EntityManagerFactory entityManagerFactory
+    ) {
+        this.dataKvRepository = dataKvRepository;
+        this.logService = logService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        cacheInvalidationBus.register(APP_SETTINGS_CACHE, new CacheInvalidationHandler() {
+            @Override
+            public void evict(String key) {
+                refresh();
+            }
+
+            @Override
+            public void clear() {
+                refresh();
+            }
+        });
+    }
+
+    @Override
+    public AppSettings getSettings() {
+        return settings.get();
+    }
+
+    @Override
+    public AppSettings update(AppInfoType type, String value, AppUserDto currentUser) {
+        if (value == null) {
+            throw new BadRequestException(String.format("Value of [%s] may not be empty", type));
+        }
+        DataKv dataKv = dataKvRepository.findById(type.name()).orElseGet(() -> {
+            DataKv created = new DataKv();
+            created.setKey(type.name());
+            created.setCreatedAt(new Date());
+            return created;
+        });
+        dataKv.setValue(value);
+        dataKv.setUpdatedAt(new Date());
+        dataKvRepository.save(dataKv);
+
+        logService.save(LogDto.builder()
+                .entityType(EntityType.DATA_KV)
+                .actionStatus(ActionStatus.SUCCESS)
+                .actionType(ActionType.UPDATED)
+                .actionPayload(Map.of("key", type.name(), "value", value))
+                .build(), currentUser);
+
+        cacheInvalidationBus.invalidate(APP_SETTINGS_CACHE, type.name());
+        return settings.get();
+    }
+
+    @Override
+    public AppSettings refresh() {
+        // Writes made on another node never touched this node's second-level cache
+        entityManagerFactory.getCache().evict(DataKv.class);
+        List<DataKvDto> rows = dataKvRepository.findAll().stream()
+                .map(dataKv -> new DataKvDto(dataKv.getKey(), dataKv.getValue(), dataKv.getCreatedAt(), dataKv.getUpdatedAt()))
+                .collect(Collectors.toList());
+        AppSettings loaded = AppSettings.of(rows);
+        settings.set(loaded);
+        log.debug("App settings loaded, version [{}]", loaded.getVersion().getEtag());
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${app.settings.poll-interval-ms:300000}")
+    public void reloadIfChanged() {
+        Date updatedAt = dataKvRepository.findLastUpdatedAt();
+        long lastModified = updatedAt != null ? updatedAt.getTime() : 0L;
+        String etag = String.format("\"%d-%d\"", lastModified, dataKvRepository.count());
+        if (!etag.equals(settings.get().getVersion().getEtag())) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.audit.writer", havingValue = "async", matchIfMissing = true)
+public class AsyncBatchAuditLogWriter implements AuditLogWriter, SmartLifecycle {
+
+    public enum OverflowPolicy {
+        BLOCK, CALLER_RUNS, DROP
+    }
+
+    private static final String SPILL_SUFFIX = ".jsonl";
+
+    private final LogJdbcRepository logJdbcRepository;
+
+    private final LogRollupService logRollupService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<Log> queue;
+
+    private final int flushSize;
+
+    private final long flushIntervalMs;
+
+    private final long offerTimeoutMs;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int flushAttempts;
+
+    private final long retryBackoffMs;
+
+    private final Path spillDir;
+
+    private final long spillReplayIntervalMs;
+
+    private final Timer flushTimer;
+
+    private final Counter writtenCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter droppedCounter;
+
+    private final Counter spilledCounter;
+
+    private volatile boolean running;
+
+    private long lastSpillReplay;
+
+    private Thread writerThread;
+
+    public AsyncBatchAuditLogWriter(
+            LogJdbcRepository logJdbcRepository,
+            LogRollupService logRollupService,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.audit.flush-size:500}") int flushSize,
+            @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${app.audit.offer-timeout-ms:100}") long offerTimeoutMs,
+            @Value("${app.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+            @Value("${app.audit.flush-attempts:3}") int flushAttempts,
+            @Value("${app.audit.flush-retry-backoff-ms:100}") long retryBackoffMs,
+            @Value("${app.audit.spill-dir:data/audit-spill}") String spillDir,
+            @Value("${app.audit.spill-replay-interval-ms:30000}") long spillReplayIntervalMs
+    ) {
+        this.logJdbcRepository = logJdbcRepository;
+        this.logRollupService = logRollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.overflowPolicy = overflowPolicy;
+        this.flushAttempts = Math.max(1, flushAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.spillDir = Paths.get(spillDir);
+        this.spillReplayIntervalMs = spillReplayIntervalMs;
+
+        Gauge.builder("audit.log.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.log.flush").publishPercentileHistogram().register(meterRegistry);
+        this.writtenCounter = Counter.builder("audit.log.written").register(meterRegistry);
+        this.failedCounter = Counter.builder("audit.log.failed").register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.log.dropped").register(meterRegistry);
+        this.spilledCounter = Counter.builder("audit.log.spilled").register(meterRegistry);
+    }
+
+    @Override
+    public void write(Log log) {
+        if (log.getId() == null) {
+            log.setId(UUID.randomUUID());
+        }
+        if (!running) {
+            flush(List.of(log));
+            return;
+        }
+        if (queue.offer(log)) {
+            recheckStopped(log);
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                droppedCounter.increment();
+                break;
+            case CALLER_RUNS:
+                flush(List.of(log));
+                break;
+            default:
+                if (offerWithTimeout(log)) {
+                    recheckStopped(log);
+                } else {
+                    flush(List.of(log));
+                }
+        }
+    }
+
+    // stop() may have drained the queue between the running check and the offer
+    private void recheckStopped(Log log) {
+        if (!running && queue.remove(log)) {
+            flush(List.of(log));
+        }
+    }
+
+    private boolean offerWithTimeout(Log log) {
+        try {
+            return queue.offer(log, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        List<Log> batch = new ArrayList<>(flushSize);
+        while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+            if (System.currentTimeMillis() - lastSpillReplay >= spillReplayIntervalMs) {
+                lastSpillReplay = System.currentTimeMillis();
+                replaySpilled();
+            }
+            try {
+                Log first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Log next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void flush(List<Log> batch) {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    insert(batch);
+                    writtenCounter.increment(batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= flushAttempts || !backOff(attempt)) {
+                        log.error("Failed to write [{}] audit logs after [{}] attempts", batch.size(), attempt, e);
+                        spill(batch);
+                        return;
+                    }
+                    log.warn("Failed to write [{}] audit logs, retrying: {}", batch.size(), e.getMessage());
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Ids already stored are skipped and left out of the rollups, which makes a replay safe
+    private void insert(List<Log> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Log> inserted = logJdbcRepository.batchInsert(batch);
+            if (!inserted.isEmpty()) {
+                logRollupService.record(inserted);
+            }
+        });
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void spill(List<Log> batch) {
+        try {
+            Files.createDirectories(spillDir);
+            Path temp = Files.createTempFile(spillDir, "audit-", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Log log : batch) {
+                    writer.write(objectMapper.writeValueAsString(log));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, spillDir.resolve(System.currentTimeMillis() + "-" + UUID.randomUUID() + SPILL_SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+            spilledCounter.increment(batch.size());
+        } catch (IOException e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to spill [{}] audit logs to [{}], they are lost", batch.size(), spillDir, e);
+        }
+    }
+
+    private void replaySpilled() {
+        if (!Files.isDirectory(spillDir)) return;
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(spillDir)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SPILL_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Failed to list spilled audit logs in [{}]", spillDir, e);
+            return;
+        }
+        for (Path file : files) {
+            try {
+                List<Log> batch = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        batch.add(objectMapper.readValue(line, Log.class));
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    insert(batch);
+                    writtenCounter.increment(batch.size());
+                }
+                Files.delete(file);
+                log.info("Replayed [{}] spilled audit logs from [{}]", batch.size(), file.getFileName());
+            } catch (Exception e) {
+                log.warn("Failed to replay spilled audit logs from [{}]: {}", file.getFileName(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drainLoop, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Log> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server so requests still in flight can enqueue their logs
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.audit.consumer.enabled", havingValue = "true")
+public class AuditLogConsumer {
+
+    private final LogJdbcRepository logJdbcRepository;
+
+    private final LogRollupService logRollupService;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter writtenCounter;
+
+    private final Counter skippedCounter;
+
+    public AuditLogConsumer(
+            LogJdbcRepository logJdbcRepository,
+            LogRollupService logRollupService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.logJdbcRepository = logJdbcRepository;
+        this.logRollupService = logRollupService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writtenCounter = Counter.builder("audit.log.consumed").register(meterRegistry);
+        this.skippedCounter = Counter.builder("audit.log.consume.skipped").register(meterRegistry);
+    }
+
+    @KafkaListener(
+            topics = "${app.audit.topic:auditLogTopic}",
+            groupId = "${app.audit.consumer.group-id:audit-log-writer}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = {
+                    "auto.offset.reset=earliest",
+                    "max.poll.records=${app.audit.consumer.max-poll-records:500}"
+            }
+    )
+    public void consume(List<String> records) {
+        List<Log> logs = new ArrayList<>(records.size());
+        for (String record : records) {
+            try {
+                logs.add(objectMapper.readValue(record, Log.class));
+            } catch (JsonProcessingException e) {
+                skippedCounter.increment();
+                log.error("Skipping malformed audit log record", e);
+            }
+        }
+        if (logs.isEmpty()) {
+            return;
+        }
+        // A failure rolls back the whole batch and the container redelivers it;
+        // the insert ignores rows that were already written and only new rows are counted
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Log> inserted = logJdbcRepository.batchInsert(logs);
+            if (!inserted.isEmpty()) {
+                logRollupService.record(inserted);
+            }
+        });
+        writtenCounter.increment(logs.size());
+    }
+}
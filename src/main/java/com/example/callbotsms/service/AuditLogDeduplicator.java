@@ -0,0 +1,162 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.enums.ActionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+// Collapses identical events within a window into one row carrying the occurrence count
+// and the first and last occurrence times. The first occurrence opens the window.
+@Slf4j
+@Component
+public class AuditLogDeduplicator implements SmartLifecycle {
+
+    private final AuditLogWriter auditLogWriter;
+
+    private final boolean enabled;
+
+    private final long windowMs;
+
+    private final int maxKeys;
+
+    private final Set<ActionStatus> statuses;
+
+    private final ConcurrentMap<DedupKey, Log> pending = new ConcurrentHashMap<>();
+
+    private final Counter collapsedCounter;
+
+    private volatile boolean running;
+
+    public AuditLogDeduplicator(
+            AuditLogWriter auditLogWriter,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit.dedup.enabled:false}") boolean enabled,
+            @Value("${app.audit.dedup.window-ms:60000}") long windowMs,
+            @Value("${app.audit.dedup.max-keys:10000}") int maxKeys,
+            @Value("${app.audit.dedup.statuses:FAILURE}") List<ActionStatus> statuses
+    ) {
+        this.auditLogWriter = auditLogWriter;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxKeys = maxKeys;
+        this.statuses = statuses.isEmpty() ? EnumSet.noneOf(ActionStatus.class) : EnumSet.copyOf(statuses);
+
+        Gauge.builder("audit.log.dedup.pending", pending, Map::size).register(meterRegistry);
+        this.collapsedCounter = Counter.builder("audit.log.dedup.collapsed").register(meterRegistry);
+    }
+
+    /**
+     * Returns the row the event is recorded in: the log itself, or the open window it collapsed into.
+     */
+    public Log write(Log log) {
+        if (!enabled || !running || !statuses.contains(log.getActionStatus())) {
+            auditLogWriter.write(log);
+            return log;
+        }
+        // 0: written through, 1: opened a window, 2: collapsed into an open window
+        int[] outcome = new int[1];
+        Log recorded = pending.compute(DedupKey.of(log), (key, current) -> {
+            if (current != null) {
+                current.setOccurrenceCount(current.getOccurrenceCount() + log.getOccurrenceCount());
+                current.setLastOccurredAt(log.getCreatedAt());
+                outcome[0] = 2;
+                return current;
+            }
+            if (pending.size() >= maxKeys) {
+                return null;
+            }
+            outcome[0] = 1;
+            return log;
+        });
+        if (outcome[0] == 0) {
+            // Too many distinct keys in flight, write through rather than grow without bound
+            auditLogWriter.write(log);
+            return log;
+        }
+        if (outcome[0] == 2) {
+            collapsedCounter.increment();
+        }
+        return recorded;
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.dedup.sweep-interval-ms:1000}")
+    public void flushExpired() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        flush(log -> now - log.getCreatedAt().getTime() >= windowMs);
+    }
+
+    private void flush(Predicate<Log> expired) {
+        for (DedupKey key : pending.keySet()) {
+            Log[] flushed = new Log[1];
+            pending.computeIfPresent(key, (k, log) -> {
+                if (!expired.test(log)) {
+                    return log;
+                }
+                flushed[0] = log;
+                return null;
+            });
+            if (flushed[0] != null) {
+                auditLogWriter.write(flushed[0]);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flush(log -> true);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop before the audit writer so the open windows are still written
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    @lombok.Value
+    private static class DedupKey {
+        UUID tenantId;
+        String entityType;
+        UUID entityId;
+        String actionType;
+        String actionStatus;
+        String actionFailureDetails;
+
+        static DedupKey of(Log log) {
+            return new DedupKey(
+                    log.getTenantId(),
+                    log.getEntityType() != null ? log.getEntityType().name() : null,
+                    log.getEntityId(),
+                    log.getActionType() != null ? log.getActionType().name() : null,
+                    log.getActionStatus() != null ? log.getActionStatus().name() : null,
+                    log.getActionFailureDetails()
+            );
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+
+public interface AuditLogWriter {
+
+    void write(Log log);
+}
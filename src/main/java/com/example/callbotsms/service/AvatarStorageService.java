@@ -0,0 +1,17 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AvatarDto;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface AvatarStorageService {
+
+    String store(UUID userId, InputStream inputStream);
+
+    AvatarDto load(UUID userId);
+
+    AvatarDto load(UUID userId, Integer size);
+
+    void delete(UUID userId);
+}
@@ -0,0 +1,392 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AvatarDto;
+import com.example.callbotsms.exception.BadRequestException;
+import com.example.callbotsms.exception.ServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class AvatarStorageServiceImpl implements AvatarStorageService {
+
+    private static final String ORIGINAL_FILE = "original-";
+    private static final String CURRENT_FILE = "current";
+    private static final String THUMBNAIL_FORMAT = "png";
+    private static final int HEADER_SIZE = 12;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int LOCK_STRIPES = 64;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF_SIGNATURE = "GIF8".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF_SIGNATURE = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP_SIGNATURE = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    @Value("${app.avatar.storage-dir:data/avatars}")
+    private String storageDir;
+
+    @Value("${app.avatar.max-size:2097152}")
+    private long maxSize;
+
+    // Checked from the image header before any pixel is decoded, a small file can still claim a huge canvas
+    @Value("${app.avatar.max-pixels:16777216}")
+    private long maxPixels;
+
+    @Value("${app.avatar.thumbnail-sizes:32,48,64,128,256}")
+    private String thumbnailSizes;
+
+    private Set<Integer> allowedSizes;
+
+    private final ConcurrentMap<Path, CompletableFuture<Path>> renderings = new ConcurrentHashMap<>();
+
+    // Uploads of the same user swap the current pointer and clean up one at a time
+    private final Object[] storeLocks = new Object[LOCK_STRIPES];
+
+    @PostConstruct
+    public void init() {
+        allowedSizes = Arrays.stream(thumbnailSizes.split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .collect(Collectors.toUnmodifiableSet());
+        for (int i = 0; i < storeLocks.length; i++) {
+            storeLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String store(UUID userId, InputStream inputStream) {
+        try {
+            BufferedInputStream in = new BufferedInputStream(inputStream, BUFFER_SIZE);
+            in.mark(HEADER_SIZE);
+            String contentType = detectContentType(in.readNBytes(HEADER_SIZE));
+            in.reset();
+            if (contentType == null) {
+                throw new BadRequestException("Avatar must be a PNG, JPEG, GIF or WEBP image");
+            }
+
+            Path userDir = Files.createDirectories(getUserDir(userId));
+            Path tempFile = Files.createTempFile(userDir, ORIGINAL_FILE, ".tmp");
+            String hash;
+            try {
+                hash = copyWithLimit(in, tempFile);
+                readDimensions(tempFile);
+                synchronized (storeLock(userId)) {
+                    Files.move(tempFile, userDir.resolve(ORIGINAL_FILE + hash),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    writeCurrent(userDir, hash);
+                    deleteStaleFiles(userDir, hash);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return contentType;
+        } catch (IOException e) {
+            log.error("Failed to store avatar for user [{}]", userId, e);
+            throw new ServiceException(String.format("Could not store avatar for user [%s]", userId));
+        }
+    }
+
+    @Override
+    public AvatarDto load(UUID userId) {
+        Path userDir = getUserDir(userId);
+        String hash = readCurrent(userDir);
+        return hash != null ? toAvatar(userId, userDir.resolve(ORIGINAL_FILE + hash)) : null;
+    }
+
+    @Override
+    public AvatarDto load(UUID userId, Integer size) {
+        if (size == null) {
+            return load(userId);
+        }
+        if (!allowedSizes.contains(size)) {
+            throw new BadRequestException(String.format("Invalid avatar size [%s]. It should be %s", size, allowedSizes));
+        }
+        Path userDir = getUserDir(userId);
+        String hash = readCurrent(userDir);
+        Path original = hash != null ? userDir.resolve(ORIGINAL_FILE + hash) : null;
+        if (original == null || !Files.isRegularFile(original)) {
+            return null;
+        }
+        // Thumbnails are named after the hash of their original, so an existing one is never stale
+        Path thumbnail = userDir.resolve(size + "-" + hash + "." + THUMBNAIL_FORMAT);
+        if (!Files.isRegularFile(thumbnail)) {
+            thumbnail = renderOnce(original, thumbnail, size);
+        }
+        return toAvatar(userId, thumbnail);
+    }
+
+    private AvatarDto toAvatar(UUID userId, Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return new AvatarDto(
+                    new FileSystemResource(file),
+                    detectContentType(in.readNBytes(HEADER_SIZE)),
+                    Files.size(file),
+                    Files.getLastModifiedTime(file).toMillis()
+            );
+        } catch (IOException e) {
+            log.error("Failed to read avatar for user [{}]", userId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(UUID userId) {
+        try {
+            FileSystemUtils.deleteRecursively(getUserDir(userId));
+        } catch (IOException e) {
+            log.error("Failed to delete avatar for user [{}]", userId, e);
+        }
+    }
+
+    private Path renderOnce(Path original, Path thumbnail, int size) {
+        CompletableFuture<Path> rendering = new CompletableFuture<>();
+        CompletableFuture<Path> inFlight = renderings.putIfAbsent(thumbnail, rendering);
+        if (inFlight != null) {
+            return awaitRendering(inFlight);
+        }
+        try {
+            rendering.complete(renderThumbnail(original, thumbnail, size));
+        } catch (Exception e) {
+            rendering.completeExceptionally(e);
+        } finally {
+            renderings.remove(thumbnail, rendering);
+        }
+        return awaitRendering(rendering);
+    }
+
+    private Path awaitRendering(CompletableFuture<Path> rendering) {
+        try {
+            return rendering.join();
+        } catch (CompletionException e) {
+            log.error("Failed to render avatar thumbnail", e.getCause());
+            throw new ServiceException("Could not render avatar thumbnail");
+        }
+    }
+
+    private Path renderThumbnail(Path original, Path thumbnail, int size) throws IOException {
+        BufferedImage image = readImage(original);
+        if (image == null) {
+            // No ImageIO reader for this format (e.g. WEBP), serve the original instead
+            return original;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1d, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        // Halve step by step so large downscales keep their detail with bilinear sampling
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            image = scale(image, width, height);
+        }
+        image = scale(image, targetWidth, targetHeight);
+
+        Path tempFile = Files.createTempFile(thumbnail.getParent(), size + "-", ".tmp");
+        try {
+            ImageIO.write(image, THUMBNAIL_FORMAT, tempFile.toFile());
+            Files.move(tempFile, thumbnail, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return thumbnail;
+    }
+
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Decodes the image with the reader that validated its dimensions, or returns {@code null} when
+     * ImageIO has no reader for the format.
+     */
+    private BufferedImage readImage(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = dimensionCheckedReader(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void readDimensions(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = dimensionCheckedReader(in);
+            if (reader != null) {
+                reader.dispose();
+            }
+        } catch (IIOException e) {
+            throw new BadRequestException("Avatar image is corrupted");
+        }
+    }
+
+    // Only the header is parsed here, the caller decides whether to decode
+    private ImageReader dimensionCheckedReader(ImageInputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+            if (pixels > maxPixels) {
+                throw new BadRequestException(String.format("Avatar must not exceed [%s] pixels", maxPixels));
+            }
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            reader.dispose();
+            throw e;
+        }
+    }
+
+    private String readCurrent(Path userDir) {
+        try {
+            return Files.readString(userDir.resolve(CURRENT_FILE), StandardCharsets.US_ASCII).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.error("Failed to read avatar pointer in [{}]", userDir, e);
+            return null;
+        }
+    }
+
+    private void writeCurrent(Path userDir, String hash) throws IOException {
+        Path tempFile = Files.createTempFile(userDir, CURRENT_FILE, ".tmp");
+        try {
+            Files.writeString(tempFile, hash, StandardCharsets.US_ASCII);
+            Files.move(tempFile, userDir.resolve(CURRENT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Originals and thumbnails of earlier uploads, the current hash and in-flight temp files are kept
+    private void deleteStaleFiles(Path userDir, String hash) throws IOException {
+        try (var files = Files.list(userDir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                boolean stale = name.startsWith(ORIGINAL_FILE) ? !name.equals(ORIGINAL_FILE + hash) && !name.endsWith(".tmp")
+                        : name.endsWith("." + THUMBNAIL_FORMAT) && !name.endsWith("-" + hash + "." + THUMBNAIL_FORMAT);
+                if (stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Returns the SHA-256 of the copied bytes, which names the stored original and its thumbnails
+    private String copyWithLimit(InputStream in, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxSize) {
+                    throw new BadRequestException(String.format("Avatar must not exceed [%s] bytes", maxSize));
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object storeLock(UUID userId) {
+        return storeLocks[Math.floorMod(userId.hashCode(), storeLocks.length)];
+    }
+
+    private Path getUserDir(UUID userId) {
+        return Paths.get(storageDir, userId.toString());
+    }
+
+    private String detectContentType(byte[] header) {
+        if (startsWith(header, PNG_SIGNATURE, 0)) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (startsWith(header, JPEG_SIGNATURE, 0)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (startsWith(header, GIF_SIGNATURE, 0)) {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (startsWith(header, RIFF_SIGNATURE, 0) && startsWith(header, WEBP_SIGNATURE, 8)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private boolean startsWith(byte[] header, byte[] signature, int offset) {
+        return header.length >= offset + signature.length
+                && Arrays.equals(header, offset, offset + signature.length, signature, 0, signature.length);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.callbotsms.service;
+
+import java.util.UUID;
+
+public interface CacheInvalidationBus {
+
+    void register(String cache, CacheInvalidationHandler handler);
+
+    void invalidate(String cache, String key);
+
+    void invalidateTenant(String cache, UUID tenantId);
+
+    void invalidateAll(String cache);
+}
@@ -0,0 +1,151 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaTemplateResolver;
+import com.example.callbotsms.dto.model.CacheInvalidationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class CacheInvalidationBusImpl implements CacheInvalidationBus, ConsumerSeekAware {
+
+    // Identifies this process, events carrying it were already applied locally when published
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, CacheInvalidationHandler> handlers = new ConcurrentHashMap<>();
+
+    private final KafkaTemplateResolver kafkaTemplateResolver;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String topic;
+
+    public CacheInvalidationBusImpl(
+            KafkaTemplateResolver kafkaTemplateResolver,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.invalidation.topic:cacheInvalidationTopic}") String topic
+    ) {
+        this.kafkaTemplateResolver = kafkaTemplateResolver;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.topic = topic;
+    }
+
+    @Override
+    public void register(String cache, CacheInvalidationHandler handler) {
+        if (handlers.putIfAbsent(cache, handler) != null) {
+            throw new IllegalStateException(String.format("Cache [%s] is already registered", cache));
+        }
+    }
+
+    @Override
+    public void invalidate(String cache, String key) {
+        publish(CacheInvalidationEvent.builder().cache(cache).scope(CacheInvalidationEvent.Scope.KEY).key(key).build());
+    }
+
+    @Override
+    public void invalidateTenant(String cache, UUID tenantId) {
+        publish(CacheInvalidationEvent.builder().cache(cache).scope(CacheInvalidationEvent.Scope.TENANT).tenantId(tenantId).build());
+    }
+
+    @Override
+    public void invalidateAll(String cache) {
+        publish(CacheInvalidationEvent.builder().cache(cache).scope(CacheInvalidationEvent.Scope.ALL).build());
+    }
+
+    // Inside a transaction nothing is evicted or sent before commit, or a reader could cache the old row again
+    private void publish(CacheInvalidationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(CacheInvalidationEvent event) {
+        apply(event);
+        event.setNodeId(nodeId);
+        event.setPublishedAt(System.currentTimeMillis());
+        try {
+            kafkaTemplateResolver.forTopic(topic).send(topic, event.getCache(), objectMapper.writeValueAsString(event));
+            Counter.builder("cache.invalidation.published").tag("cache", event.getCache()).register(meterRegistry).increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Other nodes fall back to the cache's own expiry
+            log.error("Failed to publish invalidation of cache [{}]", event.getCache(), e);
+        }
+    }
+
+    // The single partition is assigned to every node instead of being shared through a group rebalance,
+    // so each node sees every event and restarts leave no per-node group behind
+    @KafkaListener(
+            topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                    topic = "${app.cache.invalidation.topic:cacheInvalidationTopic}", partitions = "0"),
+            groupId = "${app.cache.invalidation.group-id:cache-invalidation}"
+    )
+    public void onEvent(String message) {
+        CacheInvalidationEvent event;
+        try {
+            event = objectMapper.readValue(message, CacheInvalidationEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Skipping malformed cache invalidation event", e);
+            return;
+        }
+        if (nodeId.equals(event.getNodeId())) {
+            return;
+        }
+        // Measured against the publisher's clock, so it includes any skew between nodes
+        Timer.builder("cache.invalidation.lag")
+                .tag("cache", event.getCache())
+                .register(meterRegistry)
+                .record(Math.max(0, System.currentTimeMillis() - event.getPublishedAt()), TimeUnit.MILLISECONDS);
+        apply(event);
+    }
+
+    // Events older than this node are already covered by its empty caches, offsets committed by others are ignored
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+
+    private void apply(CacheInvalidationEvent event) {
+        CacheInvalidationHandler handler = handlers.get(event.getCache());
+        if (handler == null) {
+            log.debug("No handler for invalidated cache [{}]", event.getCache());
+            return;
+        }
+        switch (event.getScope()) {
+            case KEY:
+                handler.evict(event.getKey());
+                break;
+            case TENANT:
+                handler.evictTenant(event.getTenantId());
+                break;
+            default:
+                handler.clear();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.callbotsms.service;
+
+import java.util.UUID;
+
+/**
+ * Evicts entries of one in-process cache, called for local changes and for changes made on other nodes.
+ */
+public interface CacheInvalidationHandler {
+
+    void evict(String key);
+
+    // Caches that are not partitioned by tenant fall back to dropping everything
+    default void evictTenant(UUID tenantId) {
+        clear();
+    }
+
+    void clear();
+}
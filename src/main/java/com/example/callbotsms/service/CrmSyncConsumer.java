@@ -0,0 +1,127 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.ContactDto;
+import com.example.callbotsms.dto.model.CrmSyncEventDto;
+import com.example.callbotsms.repository.CrmSyncJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.crm.sync.enabled", havingValue = "true")
+public class CrmSyncConsumer {
+
+    private final CrmSyncJdbcRepository crmSyncJdbcRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter appliedCounter;
+
+    private final Counter staleCounter;
+
+    private final Counter skippedCounter;
+
+    private final Timer lagTimer;
+
+    public CrmSyncConsumer(
+            CrmSyncJdbcRepository crmSyncJdbcRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.crmSyncJdbcRepository = crmSyncJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appliedCounter = Counter.builder("crm.sync.applied").register(meterRegistry);
+        this.staleCounter = Counter.builder("crm.sync.stale").register(meterRegistry);
+        this.skippedCounter = Counter.builder("crm.sync.skipped").register(meterRegistry);
+        // Time from the record being produced to it being applied
+        this.lagTimer = Timer.builder("crm.sync.lag").publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @KafkaListener(
+            topics = "${app.crm.topic:crmSyncTopic}",
+            groupId = "${app.crm.consumer.group-id:crm-sync}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${app.crm.consumer.concurrency:3}",
+            properties = {
+                    "auto.offset.reset=earliest",
+                    "max.poll.records=${app.crm.consumer.max-poll-records:1000}"
+            }
+    )
+    public void consume(List<ConsumerRecord<String, String>> records) {
+        // Only the newest version of an entity in the batch is written
+        Map<UUID, ContactDto> contacts = new LinkedHashMap<>();
+        Map<UUID, AppUserDto> users = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            CrmSyncEventDto event = parse(record);
+            if (event == null) continue;
+            if (event.getType() == CrmSyncEventDto.Type.CONTACT && isValid(event.getContact(), ContactDto::getId, ContactDto::getUpdatedAt)) {
+                contacts.merge(event.getContact().getId(), event.getContact(),
+                        (current, next) -> newer(current, next, ContactDto::getUpdatedAt));
+            } else if (event.getType() == CrmSyncEventDto.Type.USER && isValid(event.getUser(), AppUserDto::getId, AppUserDto::getUpdatedAt)) {
+                users.merge(event.getUser().getId(), event.getUser(),
+                        (current, next) -> newer(current, next, AppUserDto::getUpdatedAt));
+            } else {
+                skippedCounter.increment();
+            }
+        }
+        if (contacts.isEmpty() && users.isEmpty()) return;
+
+        // Contacts first, users may point at a contact from the same batch
+        int applied = transactionTemplate.execute(status -> {
+            int written = 0;
+            if (!contacts.isEmpty()) {
+                written += crmSyncJdbcRepository.upsertContacts(new ArrayList<>(contacts.values()));
+                crmSyncJdbcRepository.linkPendingContacts(contacts.keySet());
+            }
+            return written + (users.isEmpty() ? 0 : crmSyncJdbcRepository.updateUsers(new ArrayList<>(users.values())));
+        });
+
+        long now = System.currentTimeMillis();
+        records.forEach(record -> lagTimer.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS));
+        appliedCounter.increment(applied);
+        staleCounter.increment(Math.max(0, contacts.size() + users.size() - applied));
+        log.debug("Applied [{}] of [{}] CRM updates", applied, records.size());
+    }
+
+    private CrmSyncEventDto parse(ConsumerRecord<String, String> record) {
+        try {
+            return objectMapper.readValue(record.value(), CrmSyncEventDto.class);
+        } catch (JsonProcessingException e) {
+            skippedCounter.increment();
+            log.error("Skipping malformed CRM record at [{}-{}@{}]", record.topic(), record.partition(), record.offset(), e);
+            return null;
+        }
+    }
+
+    private static <T> boolean isValid(T entity, Function<T, UUID> id, Function<T, Date> updatedAt) {
+        return entity != null && id.apply(entity) != null && updatedAt.apply(entity) != null;
+    }
+
+    private static <T> T newer(T current, T next, Function<T, Date> updatedAt) {
+        return updatedAt.apply(next).after(updatedAt.apply(current)) ? next : current;
+    }
+}
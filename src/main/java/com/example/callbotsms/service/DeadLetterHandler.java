@@ -0,0 +1,36 @@
+package com.example.callbotsms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeadLetterHandler {
+
+    private final MeterRegistry meterRegistry;
+
+    // Records stay on the dead-letter topic, DeadLetterReplayService reads them with its own group
+    public void handle(ConsumerRecord<String, byte[]> record) {
+        String originalTopic = headerValue(record, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        Counter.builder("kafka.dlt.received")
+                .tag("topic", originalTopic != null ? originalTopic : record.topic())
+                .register(meterRegistry)
+                .increment();
+        log.error("Record [{}] from [{}] was dead-lettered after retries: {}",
+                record.key(), originalTopic, headerValue(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    private static String headerValue(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.callbotsms.service;
+
+public interface DeadLetterReplayService {
+
+    int replay(String topic, int batchSize);
+}
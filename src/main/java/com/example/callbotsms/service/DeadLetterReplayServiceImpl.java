@@ -0,0 +1,151 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaRetryTopicConfig;
+import com.example.callbotsms.config.KafkaTemplateResolver;
+import com.example.callbotsms.exception.BadRequestException;
+import com.example.callbotsms.exception.ServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+public class DeadLetterReplayServiceImpl implements DeadLetterReplayService {
+
+    private final DefaultKafkaConsumerFactory<String, byte[]> dltConsumerFactory;
+
+    private final KafkaTemplateResolver kafkaTemplateResolver;
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<String> retryTopics;
+
+    private final int maxBatchSize;
+
+    private final long pollTimeoutMs;
+
+    private final long ackTimeoutMs;
+
+    public DeadLetterReplayServiceImpl(
+            ConsumerFactory<String, byte[]> binaryConsumerFactory,
+            KafkaTemplateResolver kafkaTemplateResolver,
+            MeterRegistry meterRegistry,
+            @Value("${app.kafka.retry.topics:${spring.kafka.template.default-topic}}") List<String> retryTopics,
+            @Value("${app.kafka.dlt.replay.group-id:dlt-replay}") String groupId,
+            @Value("${app.kafka.dlt.replay.max-batch-size:500}") int maxBatchSize,
+            @Value("${app.kafka.dlt.replay.poll-timeout-ms:5000}") long pollTimeoutMs,
+            @Value("${app.kafka.dlt.replay.ack-timeout-ms:30000}") long ackTimeoutMs
+    ) {
+        // Values are replayed byte for byte so JSON and Avro topics are handled alike
+        Map<String, Object> configs = new HashMap<>(binaryConsumerFactory.getConfigurationProperties());
+        configs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configs.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxBatchSize);
+        this.dltConsumerFactory = new DefaultKafkaConsumerFactory<>(configs);
+        this.kafkaTemplateResolver = kafkaTemplateResolver;
+        this.meterRegistry = meterRegistry;
+        this.retryTopics = retryTopics;
+        this.maxBatchSize = maxBatchSize;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    /**
+     * Sends at most one batch of dead letters of {@code topic} back to it and commits past them,
+     * callers repeat until nothing is left.
+     */
+    @Override
+    public synchronized int replay(String topic, int batchSize) {
+        if (!retryTopics.contains(topic)) {
+            throw new BadRequestException(String.format("Topic [%s] has no dead-letter topic", topic));
+        }
+        if (batchSize <= 0 || batchSize > maxBatchSize) {
+            throw new BadRequestException(String.format("Batch size must be between 1 and %d", maxBatchSize));
+        }
+        String dltTopic = topic + KafkaRetryTopicConfig.DLT_SUFFIX;
+        try (Consumer<String, byte[]> consumer = dltConsumerFactory.createConsumer()) {
+            consumer.subscribe(List.of(dltTopic));
+            List<ConsumerRecord<String, byte[]>> batch = poll(consumer, batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            List<ListenableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(batch.size());
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (ConsumerRecord<String, byte[]> record : batch) {
+                futures.add(kafkaTemplateResolver.forTopicBinary(topic).send(toReplayRecord(topic, record)));
+                offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+            }
+            awaitAcks(futures);
+            // Offsets are only committed once every record is back on the topic, a failed replay is retried whole
+            consumer.commitSync(offsets);
+
+            Counter.builder("kafka.dlt.replayed").tag("topic", topic).register(meterRegistry).increment(batch.size());
+            log.info("Replayed [{}] dead letters from [{}] to [{}]", batch.size(), dltTopic, topic);
+            return batch.size();
+        }
+    }
+
+    private List<ConsumerRecord<String, byte[]>> poll(Consumer<String, byte[]> consumer, int batchSize) {
+        List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollTimeoutMs);
+        while (batch.isEmpty() && System.nanoTime() < deadline) {
+            ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(500));
+            for (ConsumerRecord<String, byte[]> record : records) {
+                if (batch.size() == batchSize) break;
+                batch.add(record);
+            }
+        }
+        return batch;
+    }
+
+    // Retry bookkeeping headers are dropped so the record starts over with a full set of attempts
+    private ProducerRecord<String, byte[]> toReplayRecord(String topic, ConsumerRecord<String, byte[]> record) {
+        ProducerRecord<String, byte[]> replay = new ProducerRecord<>(topic, record.key(), record.value());
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(KafkaHeaders.PREFIX)) {
+                replay.headers().add(header);
+            }
+        }
+        return replay;
+    }
+
+    private void awaitAcks(List<ListenableFuture<SendResult<String, byte[]>>> futures) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        try {
+            for (ListenableFuture<SendResult<String, byte[]>> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ServiceException("Failed to replay dead letters, nothing was committed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Dead letter replay was interrupted");
+        }
+    }
+}
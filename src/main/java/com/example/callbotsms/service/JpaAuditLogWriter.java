@@ -0,0 +1,30 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.audit.writer", havingValue = "sync")
+public class JpaAuditLogWriter implements AuditLogWriter {
+
+    private final LogJdbcRepository logJdbcRepository;
+
+    private final LogRollupService logRollupService;
+
+    @Override
+    @Transactional
+    public void write(Log log) {
+        // Inserted with the id LogService assigned, a JPA save would generate a new one
+        List<Log> inserted = logJdbcRepository.batchInsert(List.of(log));
+        if (!inserted.isEmpty()) {
+            logRollupService.record(inserted);
+        }
+    }
+}
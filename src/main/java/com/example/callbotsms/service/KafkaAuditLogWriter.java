@@ -0,0 +1,69 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaTemplateResolver;
+import com.example.callbotsms.model.Log;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.audit.writer", havingValue = "kafka")
+public class KafkaAuditLogWriter implements AuditLogWriter {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final String auditLogTopic;
+
+    private final Counter publishedCounter;
+
+    private final Counter failedCounter;
+
+    public KafkaAuditLogWriter(
+            KafkaTemplateResolver kafkaTemplateResolver,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit.topic:auditLogTopic}") String auditLogTopic
+    ) {
+        this.kafkaTemplate = kafkaTemplateResolver.forTopic(auditLogTopic);
+        this.objectMapper = objectMapper;
+        this.auditLogTopic = auditLogTopic;
+        this.publishedCounter = Counter.builder("audit.log.published").register(meterRegistry);
+        this.failedCounter = Counter.builder("audit.log.publish.failed").register(meterRegistry);
+    }
+
+    @Override
+    public void write(Log auditLog) {
+        if (auditLog.getId() == null) {
+            auditLog.setId(UUID.randomUUID());
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(auditLog);
+        } catch (JsonProcessingException e) {
+            failedCounter.increment();
+            log.error("Failed to serialize audit log [{}]", auditLog.getId(), e);
+            return;
+        }
+        // Keyed by tenant so a tenant's events stay ordered within one partition
+        kafkaTemplate.send(auditLogTopic, Objects.toString(auditLog.getTenantId(), null), payload)
+                .addCallback(
+                        result -> publishedCounter.increment(),
+                        e -> {
+                            failedCounter.increment();
+                            log.error("Failed to publish audit log [{}]", auditLog.getId(), e);
+                        }
+                );
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import lombok.Value;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+public interface LogArchiveService {
+
+    void archiveExpiredLogs();
+
+    Date getArchivedBefore();
+
+    ArchivedLogs findArchivedLogs(UUID tenantId, Date startTs, Date endTs, Predicate<Log> filter, long offset, int limit);
+
+    @Value
+    class ArchivedLogs {
+        List<Log> logs;
+        long total;
+    }
+}
@@ -0,0 +1,576 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.exception.ServiceException;
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.SyncWatermark;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.repository.SyncWatermarkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves logs older than the retention threshold into per tenant, per month segment files.
+ * A segment is a sequence of independently gzipped blocks of JSON lines in created_at order,
+ * and its index holds one line per block: first and last created_at, offset, length and row count.
+ * Rows that land in an already archived month are merged into its segment, never replacing it.
+ * Archived months are read from {@code app.audit.archive.dir} by whichever node serves the query,
+ * so every node must mount the same directory. A node whose copy is behind the shared watermark
+ * fails the query instead of returning part of the history.
+ */
+@Slf4j
+@Service
+public class LogArchiveServiceImpl implements LogArchiveService {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String NO_TENANT_DIR = "none";
+    private static final String WATERMARK_FILE = "archived-before";
+    private static final String WATERMARK_NAME = "audit-log-archive";
+    private static final long WATERMARK_REFRESH_MS = 60000;
+
+    private static final long LOCK_KEY = 0x4c4f474152434856L;
+
+    private static final String SELECT_MONTH = "SELECT id, tenant_id, created_by, entity_id, entity_type, " +
+            "action_status, action_type, action_data::text AS action_data, action_failure_details, created_at, " +
+            "occurrence_count, last_occurred_at " +
+            "FROM log WHERE created_at >= ? AND created_at < ? ORDER BY tenant_id NULLS LAST, created_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate snapshotTransactionTemplate;
+
+    private final SyncWatermarkRepository syncWatermarkRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final Path archiveDir;
+
+    private final int afterMonths;
+
+    private final int blockSize;
+
+    // Segments are replaced under the write lock so a reader never pairs a new index with an old segment
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private volatile Date archivedBefore;
+
+    private volatile Date sharedArchivedBefore;
+
+    private volatile long sharedCheckedAt;
+
+    @Autowired
+    public LogArchiveServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SyncWatermarkRepository syncWatermarkRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.audit.archive.enabled:false}") boolean enabled,
+            @Value("${app.audit.archive.dir:data/audit-archive}") String archiveDir,
+            @Value("${app.audit.archive.after-months:12}") int afterMonths,
+            @Value("${app.audit.archive.block-size:1000}") int blockSize
+    ) {
+        this(jdbcTemplate, streamingJdbcTemplate(jdbcTemplate, blockSize), transactionManager, syncWatermarkRepository,
+                objectMapper, enabled, archiveDir, afterMonths, blockSize);
+    }
+
+    LogArchiveServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            JdbcTemplate streamingJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SyncWatermarkRepository syncWatermarkRepository,
+            ObjectMapper objectMapper,
+            boolean enabled,
+            String archiveDir,
+            int afterMonths,
+            int blockSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The delete sees the same snapshot as the select, rows inserted meanwhile are left for the next run
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.syncWatermarkRepository = syncWatermarkRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.archiveDir = Paths.get(archiveDir);
+        this.afterMonths = afterMonths;
+        this.blockSize = blockSize;
+        this.archivedBefore = readWatermark();
+        if (archivedBefore != null) {
+            syncWatermarkRepository.advance(WATERMARK_NAME, archivedBefore);
+        }
+    }
+
+    private static JdbcTemplate streamingJdbcTemplate(JdbcTemplate jdbcTemplate, int blockSize) {
+        JdbcTemplate streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingJdbcTemplate.setFetchSize(blockSize);
+        return streamingJdbcTemplate;
+    }
+
+    @Override
+    @Scheduled(cron = "${app.audit.archive.cron:0 30 1 * * *}")
+    public synchronized void archiveExpiredLogs() {
+        if (!enabled) return;
+        YearMonth threshold = YearMonth.now().minusMonths(afterMonths);
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM log", Timestamp.class);
+        if (oldest == null) return;
+
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(threshold); month = month.plusMonths(1)) {
+            if (!archiveMonth(month)) {
+                log.info("Audit log archiving is running on another node");
+                return;
+            }
+            dropArchivedPartition(month);
+            Date watermark = toDate(month.plusMonths(1));
+            if (archivedBefore == null || watermark.after(archivedBefore)) {
+                writeWatermark(watermark);
+            }
+        }
+    }
+
+    @Override
+    public Date getArchivedBefore() {
+        if (System.currentTimeMillis() - sharedCheckedAt >= WATERMARK_REFRESH_MS) {
+            sharedArchivedBefore = syncWatermarkRepository.findById(WATERMARK_NAME)
+                    .map(SyncWatermark::getWatermark)
+                    .orElse(null);
+            sharedCheckedAt = System.currentTimeMillis();
+        }
+        return sharedArchivedBefore;
+    }
+
+    @Override
+    public ArchivedLogs findArchivedLogs(UUID tenantId, Date startTs, Date endTs, Predicate<Log> filter, long offset, int limit) {
+        Date shared = getArchivedBefore();
+        if (shared == null) {
+            return new ArchivedLogs(new ArrayList<>(), 0);
+        }
+        if (archivedBefore == null || archivedBefore.before(shared)) {
+            archivedBefore = readWatermark();
+        }
+        if (archivedBefore == null || archivedBefore.before(shared)) {
+            throw new ServiceException(String.format("Audit log archive [%s] is behind the archived watermark, " +
+                    "app.audit.archive.dir must be shared by every node", archiveDir));
+        }
+        Date end = endTs.after(shared) ? shared : endTs;
+        Path tenantDir = archiveDir.resolve(tenantId != null ? tenantId.toString() : NO_TENANT_DIR);
+
+        segmentLock.readLock().lock();
+        try {
+            return findArchivedLogs(tenantDir, startTs, end, filter, offset, limit);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private ArchivedLogs findArchivedLogs(Path tenantDir, Date startTs, Date end, Predicate<Log> filter, long offset, int limit) {
+        List<Log> logs = new ArrayList<>();
+        long total = 0;
+
+        for (YearMonth month = toMonth(new Date(end.getTime() - 1)); !month.isBefore(toMonth(startTs)); month = month.minusMonths(1)) {
+            Path segment = tenantDir.resolve(month.format(MONTH) + SEGMENT_SUFFIX);
+            if (!Files.exists(segment)) continue;
+            List<Block> blocks = readIndex(tenantDir.resolve(month.format(MONTH) + INDEX_SUFFIX));
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                for (int i = blocks.size() - 1; i >= 0; i--) {
+                    Block block = blocks.get(i);
+                    if (block.last < startTs.getTime() || block.first >= end.getTime()) continue;
+                    boolean covered = block.first >= startTs.getTime() && block.last < end.getTime();
+                    if (filter == null && covered && (total + block.count <= offset || logs.size() >= limit)) {
+                        total += block.count;
+                        continue;
+                    }
+                    List<Log> rows = readBlock(channel, block);
+                    for (int j = rows.size() - 1; j >= 0; j--) {
+                        Log row = rows.get(j);
+                        long createdAt = row.getCreatedAt().getTime();
+                        if (createdAt < startTs.getTime() || createdAt >= end.getTime()) continue;
+                        if (filter != null && !filter.test(row)) continue;
+                        if (total >= offset && logs.size() < limit) {
+                            logs.add(row);
+                        }
+                        total++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new ServiceException(String.format("Failed to read audit log archive [%s]", segment));
+            }
+        }
+        return new ArchivedLogs(logs, total);
+    }
+
+    private boolean archiveMonth(YearMonth month) {
+        Path staging = archiveDir.resolve(".staging");
+        Timestamp from = Timestamp.from(toDate(month).toInstant());
+        Timestamp to = Timestamp.from(toDate(month.plusMonths(1)).toInstant());
+        try {
+            Files.createDirectories(staging);
+            Boolean archived = snapshotTransactionTemplate.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                    return false;
+                }
+                Map<Path, Path> written = new LinkedHashMap<>();
+                // Inside a transaction the driver streams the month with a cursor instead of loading it whole
+                SegmentWriter[] writer = new SegmentWriter[1];
+                streamingJdbcTemplate.query(SELECT_MONTH, rs -> {
+                    Log row = mapRow(rs);
+                    String tenantDir = row.getTenantId() != null ? row.getTenantId().toString() : NO_TENANT_DIR;
+                    try {
+                        if (writer[0] == null || !writer[0].tenantDir.equals(tenantDir)) {
+                            closeWriter(writer[0], written);
+                            writer[0] = new SegmentWriter(staging, archiveDir.resolve(tenantDir), tenantDir, month);
+                        }
+                        writer[0].append(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, from, to);
+                closeWriter(writer[0], written);
+                publish(written);
+                jdbcTemplate.update("DELETE FROM log WHERE created_at >= ? AND created_at < ?", from, to);
+                log.info("Archived audit logs of [{}] in [{}] segments", month, written.size() / 2);
+                return true;
+            });
+            return Boolean.TRUE.equals(archived);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to archive audit logs of [{}]", month, e);
+            throw new ServiceException(String.format("Failed to archive audit logs of [%s]", month));
+        }
+    }
+
+    private void publish(Map<Path, Path> written) {
+        segmentLock.writeLock().lock();
+        try {
+            for (Map.Entry<Path, Path> file : written.entrySet()) {
+                Files.createDirectories(file.getValue().getParent());
+                Files.move(file.getKey(), file.getValue(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // VACUUM first so the emptiness check under the table lock does not walk the deleted rows
+    private void dropArchivedPartition(YearMonth month) {
+        String partition = "log_p" + month.format(MONTH);
+        if (!isAttached(partition)) return;
+        jdbcTemplate.execute(String.format("VACUUM %s", partition));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE log IN ACCESS EXCLUSIVE MODE");
+            if (!isAttached(partition) || Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    String.format("SELECT EXISTS (SELECT 1 FROM %s)", partition), Boolean.class))) {
+                return;
+            }
+            jdbcTemplate.execute(String.format("ALTER TABLE log DETACH PARTITION %s", partition));
+            jdbcTemplate.execute(String.format("DROP TABLE %s", partition));
+        });
+    }
+
+    private boolean isAttached(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'log'::regclass AND c.relname = ?)", Boolean.class, partition));
+    }
+
+    private void closeWriter(SegmentWriter writer, Map<Path, Path> written) {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // The index is published first, readers skip a month until its segment is in place
+        Path target = archiveDir.resolve(writer.tenantDir);
+        written.put(writer.index, target.resolve(writer.month.format(MONTH) + INDEX_SUFFIX));
+        written.put(writer.segment, target.resolve(writer.month.format(MONTH) + SEGMENT_SUFFIX));
+    }
+
+    private Log mapRow(ResultSet rs) throws SQLException {
+        Log row = new Log();
+        row.setId(rs.getObject("id", UUID.class));
+        row.setTenantId(rs.getObject("tenant_id", UUID.class));
+        row.setCreatedBy(rs.getObject("created_by", UUID.class));
+        row.setEntityId(rs.getObject("entity_id", UUID.class));
+        String entityType = rs.getString("entity_type");
+        row.setEntityType(entityType != null ? EntityType.lookup(entityType) : null);
+        String actionStatus = rs.getString("action_status");
+        row.setActionStatus(actionStatus != null ? ActionStatus.lookup(actionStatus) : null);
+        String actionType = rs.getString("action_type");
+        row.setActionType(actionType != null ? ActionType.lookup(actionType) : null);
+        row.setActionData(rs.getString("action_data"));
+        row.setActionFailureDetails(rs.getString("action_failure_details"));
+        row.setCreatedAt(new Date(rs.getTimestamp("created_at").getTime()));
+        row.setOccurrenceCount(rs.getInt("occurrence_count"));
+        Timestamp lastOccurredAt = rs.getTimestamp("last_occurred_at");
+        row.setLastOccurredAt(lastOccurredAt != null ? new Date(lastOccurredAt.getTime()) : null);
+        return row;
+    }
+
+    private List<Block> readIndex(Path index) {
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            return reader.lines().map(line -> {
+                String[] fields = line.split(" ");
+                return new Block(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+            }).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ServiceException(String.format("Failed to read audit log archive index [%s]", index));
+        }
+    }
+
+    private List<Log> readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, block.offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated audit log archive block");
+            }
+        }
+        List<Log> rows = new ArrayList<>(block.count);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(objectMapper.readValue(line, Log.class));
+            }
+        }
+        return rows;
+    }
+
+    private Date readWatermark() {
+        Path watermark = archiveDir.resolve(WATERMARK_FILE);
+        if (!Files.exists(watermark)) return null;
+        try {
+            return new Date(Long.parseLong(Files.readString(watermark).trim()));
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Ignoring unreadable audit log archive watermark [{}]", watermark, e);
+            return null;
+        }
+    }
+
+    private void writeWatermark(Date watermark) {
+        Path target = archiveDir.resolve(WATERMARK_FILE);
+        try {
+            Path temp = Files.createTempFile(archiveDir, WATERMARK_FILE, ".tmp");
+            Files.writeString(temp, String.valueOf(watermark.getTime()));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            archivedBefore = watermark;
+            syncWatermarkRepository.advance(WATERMARK_NAME, watermark);
+            sharedCheckedAt = 0;
+        } catch (IOException e) {
+            throw new ServiceException(String.format("Failed to write audit log archive watermark [%s]", target));
+        }
+    }
+
+    private static Date toDate(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static YearMonth toMonth(Date date) {
+        return YearMonth.from(date.toInstant().atZone(ZoneId.systemDefault()));
+    }
+
+    private static class Block {
+        final long first;
+        final long last;
+        final long offset;
+        final int length;
+        final int count;
+
+        Block(long first, long last, long offset, int length, int count) {
+            this.first = first;
+            this.last = last;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Rows of an existing segment in created_at order, read one block at a time.
+     */
+    private class SegmentReader implements Closeable {
+        final FileChannel channel;
+        final Iterator<Block> blocks;
+        final Deque<Log> rows = new ArrayDeque<>();
+
+        SegmentReader(Path segment, Path index) throws IOException {
+            this.blocks = readIndex(index).iterator();
+            this.channel = FileChannel.open(segment, StandardOpenOption.READ);
+        }
+
+        Log peek() throws IOException {
+            while (rows.isEmpty() && blocks.hasNext()) {
+                rows.addAll(readBlock(channel, blocks.next()));
+            }
+            return rows.peekFirst();
+        }
+
+        Log poll() throws IOException {
+            return peek() != null ? rows.pollFirst() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private class SegmentWriter implements Closeable {
+        final String tenantDir;
+        final YearMonth month;
+        final Path segment;
+        final Path index;
+        final FileOutputStream segmentOut;
+        final FileOutputStream indexOut;
+        final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        final SegmentReader existing;
+        final Set<UUID> mergedIds = new HashSet<>();
+        long mergedAt = Long.MIN_VALUE;
+        Writer blockWriter;
+        long offset;
+        long first;
+        long last;
+        int count;
+
+        SegmentWriter(Path staging, Path target, String tenantDir, YearMonth month) throws IOException {
+            this.tenantDir = tenantDir;
+            this.month = month;
+            this.segment = staging.resolve(tenantDir + "-" + month.format(MONTH) + SEGMENT_SUFFIX);
+            this.index = staging.resolve(tenantDir + "-" + month.format(MONTH) + INDEX_SUFFIX);
+            Path existingSegment = target.resolve(month.format(MONTH) + SEGMENT_SUFFIX);
+            Path existingIndex = target.resolve(month.format(MONTH) + INDEX_SUFFIX);
+            this.existing = Files.exists(existingSegment) && Files.exists(existingIndex)
+                    ? new SegmentReader(existingSegment, existingIndex)
+                    : null;
+            this.segmentOut = new FileOutputStream(segment.toFile());
+            this.indexOut = new FileOutputStream(index.toFile());
+        }
+
+        void append(Log row) throws IOException {
+            long createdAt = row.getCreatedAt().getTime();
+            mergeExisting(createdAt);
+            // A row still in the table after an interrupted run is already in the segment
+            if (createdAt == mergedAt && mergedIds.contains(row.getId())) return;
+            write(row);
+        }
+
+        private void mergeExisting(long upTo) throws IOException {
+            if (existing == null) return;
+            while (existing.peek() != null && existing.peek().getCreatedAt().getTime() <= upTo) {
+                Log row = existing.poll();
+                long createdAt = row.getCreatedAt().getTime();
+                if (createdAt != mergedAt) {
+                    mergedIds.clear();
+                    mergedAt = createdAt;
+                }
+                mergedIds.add(row.getId());
+                write(row);
+            }
+        }
+
+        private void write(Log row) throws IOException {
+            if (blockWriter == null) {
+                block.reset();
+                blockWriter = new OutputStreamWriter(new GZIPOutputStream(block), StandardCharsets.UTF_8);
+                first = row.getCreatedAt().getTime();
+                count = 0;
+            }
+            blockWriter.write(objectMapper.writeValueAsString(row));
+            blockWriter.write('\n');
+            last = row.getCreatedAt().getTime();
+            if (++count >= blockSize) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockWriter == null) return;
+            blockWriter.close();
+            blockWriter = null;
+            segmentOut.write(block.toByteArray());
+            indexOut.write(String.format("%d %d %d %d %d%n", first, last, offset, block.size(), count)
+                    .getBytes(StandardCharsets.UTF_8));
+            offset += block.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                mergeExisting(Long.MAX_VALUE);
+                flushBlock();
+                segmentOut.getChannel().force(true);
+                indexOut.getChannel().force(true);
+            } finally {
+                indexOut.close();
+                segmentOut.close();
+                if (existing != null) {
+                    existing.close();
+                }
+            }
+        }
+    }
+}
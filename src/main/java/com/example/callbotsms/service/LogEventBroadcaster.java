@@ -0,0 +1,46 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.LogDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogEventBroadcaster {
+
+    private final ObjectMapper objectMapper;
+
+    // Subscribers bound their own demand, directBestEffort drops events for one that has none left
+    private final Sinks.Many<LogDto> sink = Sinks.many().multicast().directBestEffort();
+
+    public void publish(LogDto logDto, String actionData) {
+        if (sink.currentSubscriberCount() == 0) {
+            return;
+        }
+        // Payload-only events get their tree built here, and only while someone is watching
+        if (logDto.getActionData() == null && actionData != null) {
+            try {
+                logDto.setActionData(objectMapper.readTree(actionData));
+            } catch (JsonProcessingException e) {
+                log.debug("Failed to parse action data of audit log [{}]", logDto.getId(), e);
+            }
+        }
+        Sinks.EmitResult result;
+        synchronized (sink) {
+            result = sink.tryEmitNext(logDto);
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.debug("Failed to broadcast audit log [{}]: {}", logDto.getId(), result);
+        }
+    }
+
+    public Flux<LogDto> stream() {
+        return sink.asFlux();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.LogRollupDto;
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.model.enums.RollupGranularity;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface LogRollupService {
+
+    void record(List<Log> logs);
+
+    List<LogRollupDto> findRollups(
+            UUID tenantId,
+            RollupGranularity granularity,
+            Long startTs,
+            Long endTs,
+            EntityType entityType,
+            ActionType actionType,
+            ActionStatus actionStatus
+    );
+}
@@ -0,0 +1,133 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.LogRollupDto;
+import com.example.callbotsms.exception.BadRequestException;
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.LogRollup;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.model.enums.RollupGranularity;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import com.example.callbotsms.repository.LogRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class LogRollupServiceImpl implements LogRollupService {
+
+    static final UUID NO_TENANT = new UUID(0L, 0L);
+    static final String NONE = "";
+
+    private static final Map<RollupGranularity, Duration> MAX_RANGE = Map.of(
+            RollupGranularity.HOUR, Duration.ofDays(31),
+            RollupGranularity.DAY, Duration.ofDays(731)
+    );
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::getTenantId)
+            .thenComparing(RollupKey::getGranularity)
+            .thenComparing(RollupKey::getBucket)
+            .thenComparing(RollupKey::getEntityType)
+            .thenComparing(RollupKey::getActionType)
+            .thenComparing(RollupKey::getActionStatus);
+
+    private final LogJdbcRepository logJdbcRepository;
+
+    private final LogRollupRepository logRollupRepository;
+
+    @Override
+    public void record(List<Log> logs) {
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        for (Log log : logs) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                counts.merge(toKey(log, granularity), (long) log.getOccurrenceCount(), Long::sum);
+            }
+        }
+        // Keys are sorted so concurrent writers lock rollup rows in the same order
+        logJdbcRepository.incrementRollups(counts.entrySet().stream()
+                .map(entry -> {
+                    RollupKey key = entry.getKey();
+                    return new LogRollup(null, key.getTenantId(), key.getGranularity(), key.getBucket(),
+                            key.getEntityType(), key.getActionType(), key.getActionStatus(), entry.getValue());
+                })
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<LogRollupDto> findRollups(
+            UUID tenantId,
+            RollupGranularity granularity,
+            Long startTs,
+            Long endTs,
+            EntityType entityType,
+            ActionType actionType,
+            ActionStatus actionStatus
+    ) {
+        long end = endTs != null ? endTs : System.currentTimeMillis();
+        long start = startTs != null ? startTs : end - Duration.ofDays(1).toMillis();
+        if (start < 0 || start > end) {
+            throw new BadRequestException("Start time and end time must be valid");
+        }
+        if (end - start > MAX_RANGE.get(granularity).toMillis()) {
+            throw new BadRequestException(String.format("Time range for [%s] rollups must not exceed [%s] days",
+                    granularity, MAX_RANGE.get(granularity).toDays()));
+        }
+
+        // Buckets are keyed by their start, so the bucket holding the start time begins before it
+        return logRollupRepository.findRollups(
+                tenantId != null ? tenantId : NO_TENANT,
+                granularity,
+                toBucket(new Date(start), granularity),
+                new Date(end),
+                entityType != null ? entityType.name() : null,
+                actionType != null ? actionType.name() : null,
+                actionStatus != null ? actionStatus.name() : null
+        ).stream().map(rollup -> new LogRollupDto(
+                rollup.getBucket(),
+                NONE.equals(rollup.getEntityType()) ? null : EntityType.lookup(rollup.getEntityType()),
+                NONE.equals(rollup.getActionType()) ? null : ActionType.lookup(rollup.getActionType()),
+                NONE.equals(rollup.getActionStatus()) ? null : ActionStatus.lookup(rollup.getActionStatus()),
+                rollup.getCount()
+        )).collect(Collectors.toList());
+    }
+
+    private RollupKey toKey(Log log, RollupGranularity granularity) {
+        return new RollupKey(
+                log.getTenantId() != null ? log.getTenantId() : NO_TENANT,
+                granularity,
+                toBucket(log.getCreatedAt(), granularity),
+                log.getEntityType() != null ? log.getEntityType().name() : NONE,
+                log.getActionType() != null ? log.getActionType().name() : NONE,
+                log.getActionStatus() != null ? log.getActionStatus().name() : NONE
+        );
+    }
+
+    private static Date toBucket(Date date, RollupGranularity granularity) {
+        LocalDateTime bucket = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())
+                .truncatedTo(granularity.getUnit());
+        return Date.from(bucket.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Value
+    private static class RollupKey {
+        UUID tenantId;
+        RollupGranularity granularity;
+        Date bucket;
+        String entityType;
+        String actionType;
+        String actionStatus;
+    }
+}
@@ -9,6 +9,7 @@ import com.example.callbotsms.model.enums.ActionStatus;
 import com.example.callbotsms.model.enums.ActionType;
 import com.example.callbotsms.model.enums.EntityType;
 
+import java.util.Map;
 import java.util.UUID;
 
 public interface LogService {
@@ -26,6 +27,7 @@ public interface LogService {
             Long createdAtStartTs,
             Long createdAtEndTs,
             UUID tenantId,
-            Boolean isSearchMatchCase
+            Boolean isSearchMatchCase,
+            Map<String, String> actionDataFilters
     );
 }
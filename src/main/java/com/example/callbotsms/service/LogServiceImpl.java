@@ -1,49 +1,132 @@
 package com.example.callbotsms.service;
 
+import com.example.callbotsms.data.LogSchemaMigration;
+import com.example.callbotsms.util.SearchQueryUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.im.sso.dto.mapper.LogMapper;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.LogDto;
 import com.im.sso.dto.response.page.PageData;
 import com.im.sso.dto.response.page.PageLink;
+import com.im.sso.dto.response.page.SortOrder;
 import com.im.sso.exception.BadRequestException;
+import com.im.sso.exception.ServiceException;
 import com.im.sso.model.Log;
 import com.im.sso.model.enums.ActionStatus;
 import com.im.sso.model.enums.ActionType;
 import com.im.sso.model.enums.EntityType;
 import com.im.sso.repository.LogRepository;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.text.Normalizer;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 @Service
-@RequiredArgsConstructor
 public class LogServiceImpl implements LogService {
 
+    private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Full-text search runs as a native query, so a requested sort is translated to log columns
+    private static final Map<String, String> SEARCH_SORT_COLUMNS = Map.of(
+            "createdAt", "created_at",
+            "entityType", "entity_type",
+            "entityId", "entity_id",
+            "actionType", "action_type",
+            "actionStatus", "action_status",
+            "createdBy", "created_by"
+    );
+
     private final LogMapper logMapper;
     private final LogRepository logRepository;
 
+    private final AuditLogDeduplicator auditLogDeduplicator;
+
+    private final LogEventBroadcaster logEventBroadcaster;
+
+    private final LogArchiveService logArchiveService;
+
+    private final ObjectMapper objectMapper;
+
+    private final LogSchemaMigration logSchemaMigration;
+
+    // Dates in action_data stay epoch millis as with the per-call mappers, Spring's mapper would write ISO strings
+    private final ObjectWriter actionDataWriter;
+
+    public LogServiceImpl(
+            LogMapper logMapper,
+            LogRepository logRepository,
+            AuditLogDeduplicator auditLogDeduplicator,
+            LogEventBroadcaster logEventBroadcaster,
+            LogArchiveService logArchiveService,
+            ObjectMapper objectMapper,
+            LogSchemaMigration logSchemaMigration
+    ) {
+        this.logMapper = logMapper;
+        this.logRepository = logRepository;
+        this.auditLogDeduplicator = auditLogDeduplicator;
+        this.logEventBroadcaster = logEventBroadcaster;
+        this.logArchiveService = logArchiveService;
+        this.objectMapper = objectMapper;
+        this.logSchemaMigration = logSchemaMigration;
+        this.actionDataWriter = objectMapper.writer().with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
     @Override
     public LogDto save(LogDto logDto, AppUserDto currentUser) {
         Log log = new Log();
         BeanUtils.copyProperties(logDto, log, "createdAt", "createdBy", "actionData");
         log.setCreatedBy(currentUser == null ? null : currentUser.getId());
         log.setTenantId(currentUser == null ? null : currentUser.getTenantId());
-        log.setActionData(logDto.getActionData().toString());
+        log.setActionData(toActionData(logDto));
+        log.setCreatedAt(new Date());
+        // Assigned here rather than by the writer, a deduplicated event is never written on its own
+        if (log.getId() == null) {
+            log.setId(UUID.randomUUID());
+        }
+
+        Log recorded = auditLogDeduplicator.write(log);
 
-        Log savedLog = logRepository.save(log);
+        logDto.setId(recorded.getId());
+        logDto.setTenantId(log.getTenantId());
+        logDto.setCreatedAt(log.getCreatedAt());
+        logEventBroadcaster.publish(logDto, log.getActionData());
+        return logDto;
+    }
 
-        return logMapper.toDto(savedLog);
+    // The payload is written straight to JSON text once, without building an intermediate tree
+    private String toActionData(LogDto logDto) {
+        if (logDto.getActionPayload() != null) {
+            try {
+                return actionDataWriter.writeValueAsString(logDto.getActionPayload());
+            } catch (JsonProcessingException e) {
+                throw new ServiceException("Failed to serialize audit log action data");
+            }
+        }
+        return logDto.getActionData() != null ? logDto.getActionData().toString() : null;
     }
 
     @Override
@@ -63,35 +146,207 @@ public class LogServiceImpl implements LogService {
             Long createdAtStartTs,
             Long createdAtEndTs,
             UUID tenantId,
-            Boolean isSearchMatchCase
+            Boolean isSearchMatchCase,
+            Map<String, String> actionDataFilters
     ) {
-        Pageable pageable = PageRequest.of(pageLink.getPage(), pageLink.getPageSize(), pageLink.toSort(pageLink.getSortOrder()));
         isTimeStampValid(createdAtStartTs, createdAtEndTs);
+        LocalDateTime createdAtStart = Objects.requireNonNullElse(convertTimestampToDateTime(createdAtStartTs), MIN_CREATED_AT);
+        LocalDateTime createdAtEnd = Objects.requireNonNullElse(convertTimestampToDateTime(createdAtEndTs), MAX_CREATED_AT);
+        String actionDataFilter = toActionDataFilter(actionDataFilters);
 
-        String searchText = Objects.toString(pageLink.getSearchText(), "")
-                .replace("%", "\\%");
+        Date archivedBefore = logArchiveService.getArchivedBefore();
+        boolean readArchive = archivedBefore != null
+                && createdAtStartTs != null && createdAtStartTs < archivedBefore.getTime();
+        SortOrder sortOrder = pageLink.getSortOrder();
+        if (readArchive) {
+            createdAtStart = convertTimestampToDateTime(archivedBefore.getTime());
+            sortOrder = toArchiveSort(sortOrder);
+        }
 
-        searchText =  isSearchMatchCase ? searchText : removeAccent(searchText.toLowerCase());
+        // search_vector is filled by the background migration, until then the text is matched with LIKE
+        String tsQuery = isSearchMatchCase || !logSchemaMigration.isCompleted(LogSchemaMigration.SEARCH_VECTOR)
+                ? null : SearchQueryUtils.toTsQuery(pageLink.getSearchText());
+        Page<Log> logPage;
+        if (tsQuery != null && sortOrder == null) {
+            logPage = logRepository.searchLogs(
+                    tsQuery,
+                    entityType != null ? entityType.name() : null,
+                    entityId != null ? entityId.toString() : null,
+                    userId != null ? userId.toString() : null,
+                    actionStatus != null ? actionStatus.name() : null,
+                    actionType != null ? actionType.name() : null,
+                    createdAtStart,
+                    createdAtEnd,
+                    tenantId != null ? tenantId.toString() : null,
+                    actionDataFilter,
+                    PageRequest.of(pageLink.getPage(), pageLink.getPageSize())
+            );
+        } else if (tsQuery != null) {
+            logPage = logRepository.searchLogsSorted(
+                    tsQuery,
+                    entityType != null ? entityType.name() : null,
+                    entityId != null ? entityId.toString() : null,
+                    userId != null ? userId.toString() : null,
+                    actionStatus != null ? actionStatus.name() : null,
+                    actionType != null ? actionType.name() : null,
+                    createdAtStart,
+                    createdAtEnd,
+                    tenantId != null ? tenantId.toString() : null,
+                    actionDataFilter,
+                    PageRequest.of(pageLink.getPage(), pageLink.getPageSize(), toSearchSort(sortOrder))
+            );
+        } else {
+            Pageable pageable = PageRequest.of(pageLink.getPage(), pageLink.getPageSize(), pageLink.toSort(sortOrder));
 
+            String searchText = Objects.toString(pageLink.getSearchText(), "")
+                    .replace("%", "\\%");
 
-        Page<Log> logPage = logRepository.findLogs(
-                searchText,
-                isSearchMatchCase,
-                entityType,
-                entityId,
-                userId,
-                actionStatus,
-                actionType,
-                convertTimestampToDateTime(createdAtStartTs),
-                convertTimestampToDateTime(createdAtEndTs),
-                tenantId,
-                pageable
-        );
+            searchText =  isSearchMatchCase ? searchText : removeAccent(searchText.toLowerCase());
+
+            logPage = logRepository.findLogs(
+                    searchText,
+                    isSearchMatchCase,
+                    entityType,
+                    entityId,
+                    userId,
+                    actionStatus,
+                    actionType,
+                    createdAtStart,
+                    createdAtEnd,
+                    tenantId,
+                    actionDataFilter,
+                    pageable
+            );
+        }
+
+        if (readArchive) {
+            logPage = appendArchivedLogs(
+                    logPage, pageLink, archivedBefore,
+                    new Date(createdAtStartTs),
+                    createdAtEndTs != null ? new Date(createdAtEndTs + 1) : archivedBefore,
+                    toArchiveFilter(pageLink.getSearchText(), isSearchMatchCase, entityType, entityId, userId,
+                            actionStatus, actionType, actionDataFilter),
+                    tenantId
+            );
+        }
 
         Page<LogDto> logDtoList = logPage.map(logMapper::toDto);
         return new PageData<>(logDtoList);
     }
 
+    // Archived rows are appended after the live page, which needs both sorted newest first
+    private SortOrder toArchiveSort(SortOrder sortOrder) {
+        if (sortOrder == null) {
+            return new SortOrder("createdAt", SortOrder.Direction.DESC);
+        }
+        if (!"createdAt".equals(sortOrder.getProperty()) || sortOrder.getDirection() != SortOrder.Direction.DESC) {
+            throw new BadRequestException("Logs older than the archive watermark can only be sorted by createdAt descending");
+        }
+        return sortOrder;
+    }
+
+    private Sort toSearchSort(SortOrder sortOrder) {
+        String column = SEARCH_SORT_COLUMNS.get(sortOrder.getProperty());
+        if (column == null) {
+            throw new BadRequestException(String.format("Invalid sort property [%s]. It should be %s",
+                    sortOrder.getProperty(), SEARCH_SORT_COLUMNS.keySet()));
+        }
+        return Sort.by(Sort.Direction.fromString(sortOrder.getDirection().toString()), column);
+    }
+
+    private Page<Log> appendArchivedLogs(
+            Page<Log> livePage, PageLink pageLink, Date archivedBefore,
+            Date startTs, Date endTs, Predicate<Log> filter, UUID tenantId
+    ) {
+        Pageable pageable = PageRequest.of(pageLink.getPage(), pageLink.getPageSize());
+        if (startTs.after(endTs)) {
+            return livePage;
+        }
+        long archiveOffset = Math.max(0, pageable.getOffset() - livePage.getTotalElements());
+        int archiveLimit = pageLink.getPageSize() - livePage.getNumberOfElements();
+        LogArchiveService.ArchivedLogs archived = logArchiveService.findArchivedLogs(
+                tenantId, startTs, endTs.after(archivedBefore) ? archivedBefore : endTs, filter, archiveOffset, archiveLimit);
+
+        List<Log> content = new ArrayList<>(livePage.getContent());
+        content.addAll(archived.getLogs());
+        return new PageImpl<>(content, pageable, livePage.getTotalElements() + archived.getTotal());
+    }
+
+    private Predicate<Log> toArchiveFilter(
+            String searchText, boolean isSearchMatchCase,
+            EntityType entityType, UUID entityId, UUID userId,
+            ActionStatus actionStatus, ActionType actionType,
+            String actionDataFilter
+    ) {
+        List<Predicate<Log>> predicates = new ArrayList<>();
+        if (entityType != null) predicates.add(log -> entityType == log.getEntityType());
+        if (entityId != null) predicates.add(log -> entityId.equals(log.getEntityId()));
+        if (userId != null) predicates.add(log -> userId.equals(log.getCreatedBy()));
+        if (actionStatus != null) predicates.add(log -> actionStatus == log.getActionStatus());
+        if (actionType != null) predicates.add(log -> actionType == log.getActionType());
+        if (searchText != null && !searchText.isEmpty()) {
+            String text = isSearchMatchCase ? searchText : removeAccent(searchText.toLowerCase());
+            predicates.add(log -> {
+                String haystack = Objects.toString(log.getActionData(), "") + " "
+                        + Objects.toString(log.getActionFailureDetails(), "");
+                return (isSearchMatchCase ? haystack : removeAccent(haystack.toLowerCase())).contains(text);
+            });
+        }
+        if (actionDataFilter != null) {
+            JsonNode filter = readActionData(actionDataFilter);
+            predicates.add(log -> log.getActionData() != null && containsJson(readActionData(log.getActionData()), filter));
+        }
+        return predicates.stream().reduce(Predicate::and).orElse(null);
+    }
+
+    private JsonNode readActionData(String actionData) {
+        try {
+            return objectMapper.readTree(actionData);
+        } catch (JsonProcessingException e) {
+            return NullNode.getInstance();
+        }
+    }
+
+    private boolean containsJson(JsonNode data, JsonNode filter) {
+        if (!filter.isObject()) {
+            return data.isValueNode() && data.asText().equals(filter.asText());
+        }
+        if (!data.isObject()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = filter.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!data.has(field.getKey()) || !containsJson(data.get(field.getKey()), field.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String toActionDataFilter(Map<String, String> actionDataFilters) {
+        if (actionDataFilters == null || actionDataFilters.isEmpty()) {
+            return null;
+        }
+        ObjectNode filter = objectMapper.createObjectNode();
+        actionDataFilters.forEach((path, value) -> {
+            String[] fields = path.split("\\.");
+            ObjectNode node = filter;
+            for (int i = 0; i < fields.length - 1; i++) {
+                if (fields[i].isEmpty() || (node.has(fields[i]) && !node.get(fields[i]).isObject())) {
+                    throw new BadRequestException(String.format("Invalid action data filter [%s]", path));
+                }
+                node = node.has(fields[i]) ? (ObjectNode) node.get(fields[i]) : node.putObject(fields[i]);
+            }
+            String field = fields[fields.length - 1];
+            if (field.isEmpty() || node.has(field)) {
+                throw new BadRequestException(String.format("Invalid action data filter [%s]", path));
+            }
+            node.put(field, value);
+        });
+        return filter.toString();
+    }
+
     private void isTimeStampValid(Long startTs, Long endTs) {
         if (startTs != null && endTs != null) {
             if (!(startTs >= 0 && endTs >= 0 && startTs <= endTs)) {
@@ -0,0 +1,177 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaTemplateResolver;
+import com.example.callbotsms.model.OutboxEvent;
+import com.example.callbotsms.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final long RELAY_LOCK_KEY = 0x4f5554424f58L;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final KafkaTemplateResolver kafkaTemplateResolver;
+
+    private final UserEventCodec userEventCodec;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long ackTimeoutMs;
+
+    private final int maxAttempts;
+
+    private final Duration retention;
+
+    private final Counter sentCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter parkedCounter;
+
+    private final Timer batchTimer;
+
+    private final AtomicLong lagMs = new AtomicLong();
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            KafkaTemplateResolver kafkaTemplateResolver,
+            UserEventCodec userEventCodec,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+            @Value("${app.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${app.outbox.relay.ack-timeout-ms:30000}") long ackTimeoutMs,
+            @Value("${app.outbox.relay.max-attempts:10}") int maxAttempts,
+            @Value("${app.outbox.retention-hours:24}") long retentionHours
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplateResolver = kafkaTemplateResolver;
+        this.userEventCodec = userEventCodec;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.retention = Duration.ofHours(retentionHours);
+
+        this.sentCounter = Counter.builder("outbox.relay.sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.relay.failed").register(meterRegistry);
+        this.parkedCounter = Counter.builder("outbox.relay.parked").register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch").register(meterRegistry);
+        Gauge.builder("outbox.relay.lag", lagMs, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .description("Age of the oldest event not yet published")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        if (!enabled) return;
+        int relayed;
+        do {
+            relayed = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+        } while (relayed >= batchSize);
+
+        Date oldest = outboxEventRepository.findOldestUnsentCreatedAt();
+        lagMs.set(oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.getTime()) : 0);
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 15 * * * *}")
+    public void deleteSentEvents() {
+        if (!enabled) return;
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(new Date(System.currentTimeMillis() - retention.toMillis())));
+        log.debug("Deleted [{}] sent outbox events", deleted);
+    }
+
+    private int relayBatch() {
+        // Two nodes relaying at once could interleave and reorder one key's events
+        if (!outboxEventRepository.tryLockRelay(RELAY_LOCK_KEY)) return 0;
+        List<OutboxEvent> events = outboxEventRepository.lockUnsent(batchSize);
+        if (events.isEmpty()) return 0;
+
+        List<ListenableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            futures.add(kafkaTemplateResolver.forTopicBinary(event.getTopic())
+                    .send(userEventCodec.toProducerRecord(
+                            event.getTopic(), event.getMessageKey(), event.getPayload(), event.getContentType())));
+        }
+
+        List<UUID> sent = new ArrayList<>(events.size());
+        List<UUID> failed = new ArrayList<>();
+        List<UUID> parked = new ArrayList<>();
+        // Later events of a failed key stay unsent even when acknowledged, the next poll resends them in order
+        Set<String> failedKeys = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            String orderingKey = event.getTopic() + "/" + event.getMessageKey();
+            if (event.getMessageKey() != null && failedKeys.contains(orderingKey)) {
+                continue;
+            }
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(event.getId());
+                continue;
+            } catch (ExecutionException | TimeoutException e) {
+                log.debug("Failed to publish outbox event [{}]", event.getId(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            failedKeys.add(orderingKey);
+            if (event.getAttempts() + 1 >= maxAttempts) {
+                parked.add(event.getId());
+            } else {
+                failed.add(event.getId());
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxEventRepository.markSent(sent, new Date());
+            sentCounter.increment(sent.size());
+        }
+        if (!parked.isEmpty()) {
+            outboxEventRepository.markParked(parked, new Date());
+            parkedCounter.increment(parked.size());
+            log.error("Parked outbox events {} after [{}] failed attempts", parked, maxAttempts);
+        }
+        if (sent.size() < events.size()) {
+            if (!failed.isEmpty()) {
+                outboxEventRepository.markFailed(failed);
+                failedCounter.increment(failed.size());
+            }
+            log.warn("Failed to publish [{}] outbox events", failed.size() + parked.size());
+            return 0;
+        }
+        return events.size();
+    }
+}
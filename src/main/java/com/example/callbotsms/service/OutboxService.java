@@ -0,0 +1,8 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+
+public interface OutboxService {
+
+    void saveUserChange(AppUserDto user);
+}
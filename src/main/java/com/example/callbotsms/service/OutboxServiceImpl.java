@@ -0,0 +1,33 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.model.OutboxEvent;
+import com.example.callbotsms.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final UserProducer userProducer;
+
+    // Must join the transaction of the user change, otherwise the event could outlive a rollback
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveUserChange(AppUserDto user) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(userProducer.getTopic());
+        event.setMessageKey(userProducer.recordKey(user));
+        event.setContentType(userProducer.contentType());
+        event.setPayload(userProducer.encode(user, event.getContentType()));
+        event.setCreatedAt(new Date());
+        outboxEventRepository.save(event);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.ResourceVersionDto;
+
+import java.util.UUID;
+
+public interface ResourceVersionService {
+
+    void bump(UUID id);
+
+    ResourceVersionDto getUserProfileVersion(AppUserDto user);
+
+    ResourceVersionDto getUserProfileVersion(UUID userId);
+}
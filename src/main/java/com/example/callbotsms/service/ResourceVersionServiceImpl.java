@@ -0,0 +1,65 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.ResourceVersionDto;
+import com.example.callbotsms.exception.NotFoundException;
+import com.example.callbotsms.model.ResourceVersion;
+import com.example.callbotsms.repository.AppUserRepository;
+import com.example.callbotsms.repository.ResourceVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class ResourceVersionServiceImpl implements ResourceVersionService {
+
+    private final ResourceVersionRepository resourceVersionRepository;
+
+    private final AppUserRepository userRepository;
+
+    // Joins the caller's transaction, a rolled back change leaves the ETag as it was
+    @Override
+    public void bump(UUID id) {
+        if (id != null) {
+            resourceVersionRepository.increment(id);
+        }
+    }
+
+    @Override
+    public ResourceVersionDto getUserProfileVersion(AppUserDto user) {
+        return toVersion(user.getUpdatedAt(), user.getId());
+    }
+
+    @Override
+    public ResourceVersionDto getUserProfileVersion(UUID userId) {
+        AppUserRepository.VersionView user = userRepository.findVersionById(userId).orElseThrow(
+                () -> new NotFoundException(String.format("User with id [%s] is not found", userId))
+        );
+        return toVersion(user.getUpdatedAt(), userId);
+    }
+
+    private ResourceVersionDto toVersion(Date updatedAt, UUID... ids) {
+        Map<UUID, ResourceVersion> versions = resourceVersionRepository.findAllById(
+                Stream.of(ids).filter(Objects::nonNull).collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(ResourceVersion::getId, Function.identity()));
+
+        long lastModified = updatedAt != null ? updatedAt.getTime() : 0L;
+        StringBuilder etag = new StringBuilder("\"").append(lastModified);
+        for (UUID id : ids) {
+            ResourceVersion version = id != null ? versions.get(id) : null;
+            etag.append('-').append(version != null ? version.getVersion() : 0L);
+            if (version != null && version.getUpdatedAt() != null) {
+                lastModified = Math.max(lastModified, version.getUpdatedAt().getTime());
+            }
+        }
+        return new ResourceVersionDto(etag.append('"').toString(), lastModified);
+    }
+}
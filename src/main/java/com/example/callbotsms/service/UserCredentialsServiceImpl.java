@@ -1,6 +1,5 @@
 package com.example.callbotsms.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.model.LogDto;
 import com.im.sso.dto.request.ChangePasswordRequest;
@@ -41,11 +40,10 @@ public class UserCredentialsServiceImpl implements UserCredentialsService {
     public void changePassword(AppUserDto currentUser, ChangePasswordRequest passwordRequest) {
         isValidOldPassword(currentUser, passwordRequest);
         setPassword(currentUser.getId(), passwordRequest.getNewPassword());
-        ObjectMapper objectMapper = new ObjectMapper();
         logService.save(LogDto.builder()
                 .entityType(EntityType.USER_CREDENTIALS)
                 .entityId(currentUser.getId())
-                .actionData(objectMapper.valueToTree(passwordRequest))
+                .actionPayload(passwordRequest)
                 .actionStatus(ActionStatus.SUCCESS)
                 .actionType(ActionType.CREDENTIALS_UPDATED)
                 .build(), currentUser);
@@ -69,11 +67,10 @@ public class UserCredentialsServiceImpl implements UserCredentialsService {
     private void isValidOldPassword(AppUserDto currentUser, ChangePasswordRequest passwordRequest) {
         UserCredential userCredential = userCredentialsRepository.findByUserId(currentUser.getId()).orElse(new UserCredential());
         if (!passwordEncoder.matches(passwordRequest.getOldPassword(), userCredential.getPassword())) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER_CREDENTIALS)
                     .entityId(userCredential.getUserId())
-                    .actionData(objectMapper.valueToTree(passwordRequest))
+                    .actionPayload(passwordRequest)
                     .actionType(ActionType.CREDENTIALS_UPDATED)
                     .actionFailureDetails("Did not match current password")
                     .actionStatus(ActionStatus.FAILURE).build(), currentUser);
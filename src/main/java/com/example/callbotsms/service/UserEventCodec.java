@@ -0,0 +1,179 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.exception.ServiceException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Encodes user events as JSON or as Avro single-object messages. The schemas live in
+// resources/avro, one file per version, so no registry is needed to read older events.
+@Component
+public class UserEventCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String SCHEMA_VERSION_HEADER = "schema-version";
+    public static final String JSON = "application/json";
+    public static final String AVRO = "application/avro";
+    public static final int SCHEMA_VERSION = 1;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, String> topicEncodings;
+
+    private final Schema schema;
+
+    private final Schema uuidSchema;
+
+    private final BinaryMessageEncoder<GenericRecord> encoder;
+
+    private final BinaryMessageDecoder<GenericRecord> decoder;
+
+    public UserEventCodec(
+            ObjectMapper objectMapper,
+            @Value("#{${app.kafka.topic-encodings:{:}}}") Map<String, String> topicEncodings
+    ) {
+        this.objectMapper = objectMapper;
+        this.topicEncodings = topicEncodings;
+        this.schema = loadSchema(SCHEMA_VERSION);
+        this.uuidSchema = schema.getField("tenantId").schema().getTypes().get(1);
+        this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+        // Register older versions here when the schema evolves, the decoder resolves them by fingerprint
+        this.decoder = new BinaryMessageDecoder<>(GenericData.get(), schema);
+    }
+
+    public String contentTypeFor(String topic) {
+        return "avro".equalsIgnoreCase(topicEncodings.get(topic)) ? AVRO : JSON;
+    }
+
+    public byte[] encode(AppUserDto user, String contentType) {
+        if (AVRO.equals(contentType)) {
+            try {
+                ByteBuffer buffer = encoder.encode(toRecord(user));
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            } catch (IOException e) {
+                throw new ServiceException(String.format("Failed to encode user [%s]", user.getId()));
+            }
+        }
+        try {
+            return objectMapper.writeValueAsBytes(user);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException(String.format("Failed to serialize user [%s]", user.getId()));
+        }
+    }
+
+    public ProducerRecord<String, byte[]> toProducerRecord(String topic, String key, byte[] value, String contentType) {
+        List<Header> headers = new ArrayList<>(2);
+        headers.add(new RecordHeader(CONTENT_TYPE_HEADER, contentType.getBytes(StandardCharsets.UTF_8)));
+        if (AVRO.equals(contentType)) {
+            headers.add(new RecordHeader(SCHEMA_VERSION_HEADER,
+                    String.valueOf(SCHEMA_VERSION).getBytes(StandardCharsets.UTF_8)));
+        }
+        return new ProducerRecord<>(topic, null, key, value, headers);
+    }
+
+    // Records without a content type header predate the header and are JSON
+    public AppUserDto decode(byte[] value, String contentType) {
+        try {
+            if (AVRO.equals(contentType)) {
+                return toDto(decoder.decode(value));
+            }
+            return objectMapper.readValue(value, AppUserDto.class);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to decode user event");
+        }
+    }
+
+    private GenericRecord toRecord(AppUserDto user) {
+        GenericData.Record record = new GenericData.Record(schema);
+        record.put("id", toFixed(user.getId()));
+        record.put("email", user.getEmail());
+        record.put("firstName", user.getFirstName());
+        record.put("lastName", user.getLastName());
+        record.put("phone", user.getPhone());
+        record.put("authority", user.getAuthority());
+        record.put("role", user.getRole());
+        record.put("tenantId", toFixed(user.getTenantId()));
+        record.put("contactId", toFixed(user.getContactId()));
+        record.put("avatar", user.getAvatar());
+        record.put("createdAt", user.getCreatedAt() != null ? user.getCreatedAt().getTime() : null);
+        record.put("updatedAt", user.getUpdatedAt() != null ? user.getUpdatedAt().getTime() : null);
+        record.put("createdBy", toFixed(user.getCreatedBy()));
+        record.put("updatedBy", toFixed(user.getUpdatedBy()));
+        return record;
+    }
+
+    private AppUserDto toDto(GenericRecord record) {
+        AppUserDto user = new AppUserDto();
+        user.setId(toUuid(record.get("id")));
+        user.setEmail(toString(record.get("email")));
+        user.setFirstName(toString(record.get("firstName")));
+        user.setLastName(toString(record.get("lastName")));
+        user.setPhone(toString(record.get("phone")));
+        user.setAuthority(toString(record.get("authority")));
+        user.setRole(toString(record.get("role")));
+        user.setTenantId(toUuid(record.get("tenantId")));
+        user.setContactId(toUuid(record.get("contactId")));
+        user.setAvatar(toString(record.get("avatar")));
+        user.setCreatedAt(toDate(record.get("createdAt")));
+        user.setUpdatedAt(toDate(record.get("updatedAt")));
+        user.setCreatedBy(toUuid(record.get("createdBy")));
+        user.setUpdatedBy(toUuid(record.get("updatedBy")));
+        return user;
+    }
+
+    private GenericData.Fixed toFixed(UUID uuid) {
+        if (uuid == null) return null;
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putLong(uuid.getMostSignificantBits());
+        bytes.putLong(uuid.getLeastSignificantBits());
+        return new GenericData.Fixed(uuidSchema, bytes.array());
+    }
+
+    private static UUID toUuid(Object value) {
+        if (value == null) return null;
+        ByteBuffer bytes = ByteBuffer.wrap(((GenericData.Fixed) value).bytes());
+        return new UUID(bytes.getLong(), bytes.getLong());
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static Date toDate(Object value) {
+        return value != null ? new Date((Long) value) : null;
+    }
+
+    private static Schema loadSchema(int version) {
+        String path = String.format("/avro/app-user-event-v%d.avsc", version);
+        try (InputStream in = UserEventCodec.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException(String.format("Missing user event schema [%s]", path));
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to read user event schema [%s]", path), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaTemplateResolver;
+import com.example.callbotsms.dto.model.AppUserDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.Objects;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserProducer {
+
+    private final KafkaTemplateResolver kafkaTemplateResolver;
+
+    private final UserEventCodec userEventCodec;
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String saveUserTopic;
+
+    @Value(value = "${app.kafka.user-topic.key:tenant}")
+    private String keyBy;
+
+    public ListenableFuture<SendResult<String, byte[]>> sendMessage(AppUserDto user) {
+        String contentType = userEventCodec.contentTypeFor(saveUserTopic);
+        ListenableFuture<SendResult<String, byte[]>> future = kafkaTemplateResolver.forTopicBinary(saveUserTopic)
+                .send(userEventCodec.toProducerRecord(
+                        saveUserTopic, recordKey(user), userEventCodec.encode(user, contentType), contentType));
+        future.addCallback(
+                result -> log.debug("Sent user [{}] to [{}]", user.getId(), saveUserTopic),
+                e -> log.error("Failed to send user [{}] to [{}]", user.getId(), saveUserTopic, e)
+        );
+        return future;
+    }
+
+    // Records with the same key land on the same partition, so one tenant's (or user's) events stay ordered
+    public String recordKey(AppUserDto user) {
+        UUID key = "user".equalsIgnoreCase(keyBy) || user.getTenantId() == null ? user.getId() : user.getTenantId();
+        return Objects.toString(key, null);
+    }
+
+    public String contentType() {
+        return userEventCodec.contentTypeFor(saveUserTopic);
+    }
+
+    public byte[] encode(AppUserDto user, String contentType) {
+        return userEventCodec.encode(user, contentType);
+    }
+
+    public String getTopic() {
+        return saveUserTopic;
+    }
+}
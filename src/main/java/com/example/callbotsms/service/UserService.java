@@ -1,11 +1,13 @@
 package com.example.callbotsms.service;
 
+import com.example.callbotsms.dto.model.AvatarDto;
 import com.im.sso.dto.model.AppUserDto;
 import com.im.sso.dto.request.SignUpRequest;
 import com.im.sso.dto.response.UserProfileResponse;
 import com.im.sso.dto.response.page.PageData;
 import com.im.sso.dto.response.page.PageLink;
 import com.im.sso.model.enums.RoleType;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.UUID;
 
@@ -30,12 +32,16 @@ public interface UserService {
 
     String getUserAvatarById(UUID id);
 
+    AvatarDto getUserAvatar(UUID id, Integer size);
+
+    AppUserDto saveAvatar(UUID id, MultipartFile file, AppUserDto currentUser);
+
     UserProfileResponse getUserProfile(UUID id);
 
     String handleActiveUser(UUID id, Boolean isActive, AppUserDto currentUser);
 
     AppUserDto findByEmail(String email);
 
-    String syncUsers();
+    String syncUsers(Boolean delta, Long sinceTs);
 
 }
@@ -1,8 +1,11 @@
 package com.example.callbotsms.service;
 
 import com.example.callbotsms.dto.mapper.AppUserMapper;
+import com.example.callbotsms.dto.model.AppSettings;
 import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.dto.model.AvatarDto;
 import com.example.callbotsms.dto.model.LogDto;
+import com.example.callbotsms.dto.model.UserSyncStatusDto;
 import com.example.callbotsms.dto.request.SignUpRequest;
 import com.example.callbotsms.dto.request.UserActivateRequest;
 import com.example.callbotsms.dto.response.UserProfileResponse;
@@ -12,7 +15,6 @@ import com.example.callbotsms.model.AppUser;
 import com.example.callbotsms.model.UserCredential;
 import com.example.callbotsms.model.enums.*;
 import com.example.callbotsms.repository.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -21,13 +23,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.Normalizer;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.regex.Pattern;
@@ -51,16 +59,24 @@ public class UserServiceImpl implements UserService {
 
     private final AppUserMapper userMapper;
 
-    private final DataKvRepository dataKvRepository;
+    private final AppSettingsService appSettingsService;
 
     private final AppComponentMapper componentMapper;
 
-    private final UserProducer userProducer;
+    private final OutboxService outboxService;
+
+    private final TransactionTemplate transactionTemplate;
 
     private final AccountPlanRepository accountPlanRepository;
 
     private final UserSubPlanRepository userSubPlanRepository;
 
+    private final AvatarStorageService avatarStorageService;
+
+    private final ResourceVersionService resourceVersionService;
+
+    private final UserSyncService userSyncService;
+
     @Autowired
     LogService logService;
 
@@ -113,13 +129,12 @@ public class UserServiceImpl implements UserService {
             userCredentialsService.setPassword(savedUser.getId());
         }
 
-        ObjectMapper objectMapper = new ObjectMapper();
         logService.save(LogDto.builder()
                 .entityType(EntityType.USER)
                 .entityId(savedUser.getId())
                 .actionStatus(ActionStatus.SUCCESS)
                 .actionType(actionType)
-                .actionData(objectMapper.valueToTree(userDto)).build(), currentUser);
+                .actionPayload(userDto).build(), currentUser);
 
         AppUserDto savedUserDto = userMapper.toDto(savedUser);
         return savedUserDto;
@@ -130,12 +145,9 @@ public class UserServiceImpl implements UserService {
         signUpAvailable(signUpRequest);
         checkIfEmailExist(signUpRequest.getEmail(), null, signUpRequest);
 
-        AppUser defaultTenant = userRepository.findByEmail(
-                dataKvRepository.findById(AppInfoType.DEFAULT_TENANT_EMAIL.name()
-                ).orElse(null).getValue());
-        Contact defaultContact = contactRepository.findById(
-                UUID.fromString(dataKvRepository.findById(AppInfoType.DEFAULT_CONTACT_ID.name())
-                        .orElse(null).getValue())).orElse(null);
+        AppSettings settings = appSettingsService.getSettings();
+        AppUser defaultTenant = userRepository.findByEmail(settings.getDefaultTenantEmail());
+        Contact defaultContact = contactRepository.findById(settings.getDefaultContactId()).orElse(null);
 
         AppUser user = new AppUser();
         user.setFirstName(signUpRequest.getFirstName());
@@ -146,13 +158,13 @@ public class UserServiceImpl implements UserService {
         user.setTenantId(defaultTenant.getTenantId());
         user.setContact(defaultContact);
 
-        AppUser savedUser = userRepository.saveAndFlush(user);
-        AppUserDto savedUserDto = userMapper.toDto(savedUser);
-
-
-
-        userProducer.sendMessage(savedUserDto);
-        return savedUserDto;
+        // The user and its change event commit together, the outbox relay publishes the event
+        return transactionTemplate.execute(status -> {
+            AppUser savedUser = userRepository.saveAndFlush(user);
+            AppUserDto savedUserDto = userMapper.toDto(savedUser);
+            outboxService.saveUserChange(savedUserDto);
+            return savedUserDto;
+        });
     }
 
     @Override
@@ -218,6 +230,43 @@ public class UserServiceImpl implements UserService {
         return user.getAvatar();
     }
 
+    @Override
+    public AvatarDto getUserAvatar(UUID id, Integer size) {
+        return avatarStorageService.load(id, size);
+    }
+
+    @Override
+    public AppUserDto saveAvatar(UUID id, MultipartFile file, AppUserDto currentUser) {
+        AppUser user = checkUserId(id);
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("Avatar file may not be empty");
+        }
+
+        String contentType;
+        try (InputStream inputStream = file.getInputStream()) {
+            contentType = avatarStorageService.store(id, inputStream);
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read uploaded avatar");
+        }
+
+        user.setAvatar(null);
+        if (currentUser != null)
+            user.setUpdatedBy(currentUser.getId());
+        AppUser savedUser = userRepository.saveAndFlush(user);
+
+        logService.save(LogDto.builder()
+                .entityType(EntityType.USER)
+                .entityId(id)
+                .actionStatus(ActionStatus.SUCCESS)
+                .actionType(ActionType.ATTRIBUTES_UPDATED)
+                .actionPayload(Map.of(
+                        "avatarContentType", contentType,
+                        "avatarSize", file.getSize()))
+                .build(), currentUser);
+
+        return userMapper.toDto(savedUser);
+    }
+
     @Override
     public UserProfileResponse getUserProfile(UUID id) {
         AppUser user = checkUserId(id);
@@ -241,12 +290,11 @@ public class UserServiceImpl implements UserService {
     @Override
     public String handleActiveUser(UUID id, Boolean isActive, AppUserDto currentUser) {
         UserCredential userCredential = userCredentialsRepository.findByUserId(id).get();
-        ObjectMapper objectMapper = new ObjectMapper();
         if (isActive && userCredential.isEnabled()) {
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .entityId(id)
-                    .actionData(objectMapper.valueToTree(new UserActivateRequest(id, true)))
+                    .actionPayload(new UserActivateRequest(id, true))
                     .actionType(ActionType.ATTRIBUTES_UPDATED)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionFailureDetails(String.format("User with id [%s] has already activated", id))
@@ -259,7 +307,7 @@ public class UserServiceImpl implements UserService {
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .entityId(id)
-                    .actionData(objectMapper.valueToTree(new UserActivateRequest(id, false)))
+                    .actionPayload(new UserActivateRequest(id, false))
                     .actionType(ActionType.ATTRIBUTES_UPDATED)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionFailureDetails(String.format("User with id [%s] has already deactivated", id))
@@ -269,11 +317,12 @@ public class UserServiceImpl implements UserService {
             );
         }
         userCredential.setEnabled(isActive);
+        resourceVersionService.bump(id);
         String state = Boolean.TRUE.equals(isActive) ? "activate" : "deactivate";
         logService.save(LogDto.builder()
                 .entityType(EntityType.USER)
                 .entityId(id)
-                .actionData(objectMapper.valueToTree(new UserActivateRequest(id, isActive)))
+                .actionPayload(new UserActivateRequest(id, isActive))
                 .actionType(ActionType.ATTRIBUTES_UPDATED)
                 .actionStatus(ActionStatus.SUCCESS)
                 .build(), currentUser);
@@ -287,11 +336,16 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public String syncUsers() {
-        userRepository.findAll().forEach(appUser -> {
-            userProducer.sendMessage(userMapper.toDto(appUser));
-        });
-        return "Sync users successfully";
+    public String syncUsers(Boolean delta, Long sinceTs) {
+        if (sinceTs != null && sinceTs < 0) {
+            throw new BadRequestException("Sync start time must be valid");
+        }
+        if (sinceTs == null && !Boolean.TRUE.equals(delta)) {
+            userSyncService.startSync();
+            return "Sync users started";
+        }
+        UserSyncStatusDto started = userSyncService.startDeltaSync(sinceTs != null ? new Date(sinceTs) : null);
+        return started.isDelta() ? "Delta sync users started" : "Sync users started";
     }
 
     private void validateSave(AppUserDto userDto, AppUserDto currentUser, ActionType actionType) {
@@ -345,10 +399,9 @@ public class UserServiceImpl implements UserService {
     private void checkIfEmailExist(String email, AppUserDto currentUser, Object actionData) {
         AppUser user = userRepository.findByEmail(email);
         if (user != null) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
-                    .actionData(objectMapper.valueToTree(actionData))
+                    .actionPayload(actionData)
                     .actionType(ActionType.CREATED)
                     .actionFailureDetails(String.format("User with email [%s] is already exist", email))
                     .actionStatus(ActionStatus.FAILURE)
@@ -360,16 +413,14 @@ public class UserServiceImpl implements UserService {
     }
 
     private void signUpAvailable(SignUpRequest signUpRequest) {
-        boolean signUpAvailable = Boolean.parseBoolean(
-                dataKvRepository.findById(AppInfoType.SIGNUP_AVAILABLE.name()).orElse(null).getValue());
+        boolean signUpAvailable = appSettingsService.getSettings().isSignUpAvailable();
         if (!signUpAvailable) {
-            ObjectMapper objectMapper = new ObjectMapper();
             logService.save(LogDto.builder()
                     .entityType(EntityType.USER)
                     .actionStatus(ActionStatus.FAILURE)
                     .actionFailureDetails("Service is turn off sign up available")
                     .actionType(ActionType.CREATED)
-                    .actionData(objectMapper.valueToTree(signUpRequest))
+                    .actionPayload(signUpRequest)
                     .build(), null);
             throw new BadRequestException("Service is turn off sign up available");
         }
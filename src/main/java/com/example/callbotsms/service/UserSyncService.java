@@ -0,0 +1,14 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.UserSyncStatusDto;
+
+import java.util.Date;
+
+public interface UserSyncService {
+
+    UserSyncStatusDto startSync();
+
+    UserSyncStatusDto startDeltaSync(Date since);
+
+    UserSyncStatusDto getStatus();
+}
@@ -0,0 +1,204 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.mapper.AppUserMapper;
+import com.example.callbotsms.dto.model.UserSyncStatusDto;
+import com.example.callbotsms.exception.BadRequestException;
+import com.example.callbotsms.model.SyncWatermark;
+import com.example.callbotsms.repository.AppUserRepository;
+import com.example.callbotsms.repository.SyncWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class UserSyncServiceImpl implements UserSyncService {
+
+    static final String WATERMARK_NAME = "user-sync";
+
+    private final AppUserRepository userRepository;
+
+    private final AppUserMapper userMapper;
+
+    private final UserProducer userProducer;
+
+    private final SyncWatermarkRepository syncWatermarkRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    private final long ackTimeoutMs;
+
+    private final long deltaOverlapMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<UserSyncStatusDto> status = new AtomicReference<>(
+            UserSyncStatusDto.builder().state(UserSyncStatusDto.State.IDLE).build());
+
+    public UserSyncServiceImpl(
+            AppUserRepository userRepository,
+            AppUserMapper userMapper,
+            UserProducer userProducer,
+            SyncWatermarkRepository syncWatermarkRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.user-sync.chunk-size:500}") int chunkSize,
+            @Value("${app.user-sync.ack-timeout-ms:60000}") long ackTimeoutMs,
+            @Value("${app.user-sync.delta-overlap-ms:5000}") long deltaOverlapMs
+    ) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.userProducer = userProducer;
+        this.syncWatermarkRepository = syncWatermarkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.deltaOverlapMs = deltaOverlapMs;
+    }
+
+    @Override
+    public UserSyncStatusDto startSync() {
+        return start(false, null);
+    }
+
+    @Override
+    public UserSyncStatusDto startDeltaSync(Date since) {
+        if (since != null && since.after(new Date())) {
+            throw new BadRequestException("Sync start time must not be in the future");
+        }
+        Date watermark = syncWatermarkRepository.findById(WATERMARK_NAME)
+                .map(SyncWatermark::getWatermark)
+                .orElse(null);
+        Date from = since != null ? since : watermark;
+        if (from == null) {
+            log.info("No user sync watermark yet, falling back to a full sync");
+            return start(false, null);
+        }
+        // Only a run that covers everything after the stored watermark may advance it
+        return start(watermark != null && !from.after(watermark), from);
+    }
+
+    private UserSyncStatusDto start(boolean advancesWatermark, Date since) {
+        UserSyncStatusDto current = status.get();
+        UserSyncStatusDto started = UserSyncStatusDto.builder()
+                .state(UserSyncStatusDto.State.RUNNING)
+                .delta(since != null)
+                .since(since)
+                .startedAt(new Date())
+                .build();
+        if (current.getState() == UserSyncStatusDto.State.RUNNING || !status.compareAndSet(current, started)) {
+            throw new BadRequestException("User sync is already running");
+        }
+        executor.execute(() -> sync(since, since == null || advancesWatermark, started.getStartedAt()));
+        return started;
+    }
+
+    @Override
+    public UserSyncStatusDto getStatus() {
+        return status.get();
+    }
+
+    private void sync(Date since, boolean advancesWatermark, Date startedAt) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                // Rows committed shortly after their updatedAt was stamped are caught by the overlap window
+                try (Stream<AppUserRepository.SyncView> users = since == null
+                        ? userRepository.streamAll()
+                        : userRepository.streamUpdatedAfter(new Date(since.getTime() - deltaOverlapMs))) {
+                    Iterator<AppUserRepository.SyncView> iterator = users.iterator();
+                    List<ListenableFuture<SendResult<String, byte[]>>> inFlight = new ArrayList<>();
+                    while (iterator.hasNext()) {
+                        List<ListenableFuture<SendResult<String, byte[]>>> chunk = new ArrayList<>(chunkSize);
+                        while (iterator.hasNext() && chunk.size() < chunkSize) {
+                            chunk.add(userProducer.sendMessage(userMapper.toDto(iterator.next())));
+                        }
+                        update(progress -> progress.toBuilder()
+                                .chunks(progress.getChunks() + 1)
+                                .sent(progress.getSent() + chunk.size())
+                                .build());
+                        // The previous chunk is acknowledged while this one is on the wire
+                        awaitAcks(inFlight);
+                        inFlight = chunk;
+                    }
+                    awaitAcks(inFlight);
+                }
+            });
+            // A partially acknowledged run leaves the watermark alone so the next delta resends the gap
+            Date watermark = advancesWatermark && status.get().getFailed() == 0
+                    && syncWatermarkRepository.advance(WATERMARK_NAME, startedAt) > 0 ? startedAt : null;
+            UserSyncStatusDto finished = update(progress -> progress.toBuilder()
+                    .state(UserSyncStatusDto.State.COMPLETED)
+                    .finishedAt(new Date())
+                    .watermark(watermark)
+                    .build());
+            log.info("User sync finished: [{}] users sent in [{}] chunks, [{}] acknowledged, [{}] failed",
+                    finished.getSent(), finished.getChunks(), finished.getAcknowledged(), finished.getFailed());
+        } catch (Exception e) {
+            log.error("User sync failed", e);
+            update(progress -> progress.toBuilder()
+                    .state(UserSyncStatusDto.State.FAILED)
+                    .finishedAt(new Date())
+                    .error(e.getMessage())
+                    .build());
+        }
+    }
+
+    private void awaitAcks(List<ListenableFuture<SendResult<String, byte[]>>> futures) {
+        if (futures.isEmpty()) return;
+        long acknowledged = 0;
+        long failed = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        for (ListenableFuture<SendResult<String, byte[]>> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged++;
+            } catch (ExecutionException | TimeoutException e) {
+                failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("User sync was interrupted", e);
+            }
+        }
+        long chunkAcknowledged = acknowledged;
+        long chunkFailed = failed;
+        UserSyncStatusDto progress = update(current -> current.toBuilder()
+                .acknowledged(current.getAcknowledged() + chunkAcknowledged)
+                .failed(current.getFailed() + chunkFailed)
+                .build());
+        log.info("User sync chunk acknowledged: [{}] ok, [{}] failed, [{}/{}] users so far",
+                chunkAcknowledged, chunkFailed, progress.getAcknowledged(), progress.getSent());
+    }
+
+    private UserSyncStatusDto update(UnaryOperator<UserSyncStatusDto> change) {
+        return status.updateAndGet(change);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.WhiteLabelAsset;
+
+import java.util.UUID;
+
+public interface WhiteLabelAssetService {
+
+    WhiteLabelAsset findByTenantId(UUID tenantId);
+
+    void evict(UUID tenantId);
+}
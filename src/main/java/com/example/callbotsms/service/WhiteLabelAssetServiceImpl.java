@@ -0,0 +1,198 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.WhiteLabelAsset;
+import com.example.callbotsms.dto.model.WhiteLabelDto;
+import com.example.callbotsms.repository.WhiteLabelRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.im.sso.model.WhiteLabel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Service
+public class WhiteLabelAssetServiceImpl implements WhiteLabelAssetService {
+
+    public static final String WHITE_LABEL_CACHE = "whiteLabel";
+
+    public static final String LOGO_PATH = "/api/noauth/whiteLabel/%s/logo/%s";
+
+    private static final String DATA_URL_PREFIX = "data:";
+    private static final String BASE64_MARKER = ";base64,";
+    private static final String DEFAULT_LOGO_CONTENT_TYPE = "image/png";
+
+    // The logo is served from our origin, so only raster types a browser will never run as a document
+    private static final Set<String> LOGO_CONTENT_TYPES = Set.of("image/png", "image/jpeg", "image/webp", "image/gif");
+
+    // The gzip variant is only kept when it saves at least this share of the bytes
+    private static final double MIN_GZIP_SAVING = 0.1;
+
+    private final WhiteLabelRepository whiteLabelRepository;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final Cache<UUID, WhiteLabelAsset> assets;
+
+    // Tenants without a white label, kept apart so lookups of unknown ids can not push out real assets
+    private final Cache<UUID, Boolean> missing;
+
+    public WhiteLabelAssetServiceImpl(
+            WhiteLabelRepository whiteLabelRepository,
+            CacheInvalidationBus cacheInvalidationBus,
+            @Value("${app.white-label.cache.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${app.white-label.cache.max-size:10000}") long maxSize,
+            @Value("${app.white-label.cache.missing-ttl-seconds:60}") long missingTtlSeconds,
+            @Value("${app.white-label.cache.missing-max-size:1000}") long missingMaxSize
+    ) {
+        this.whiteLabelRepository = whiteLabelRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.assets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(missingMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(missingTtlSeconds))
+                .build();
+        cacheInvalidationBus.register(WHITE_LABEL_CACHE, new CacheInvalidationHandler() {
+            @Override
+            public void evict(String key) {
+                evictTenant(UUID.fromString(key));
+            }
+
+            @Override
+            public void evictTenant(UUID tenantId) {
+                assets.invalidate(tenantId);
+                missing.invalidate(tenantId);
+            }
+
+            @Override
+            public void clear() {
+                assets.invalidateAll();
+                missing.invalidateAll();
+            }
+        });
+    }
+
+    @Override
+    public WhiteLabelAsset findByTenantId(UUID tenantId) {
+        if (tenantId == null || missing.getIfPresent(tenantId) != null) {
+            return null;
+        }
+        WhiteLabelAsset asset = assets.get(tenantId, this::load);
+        if (asset == null) {
+            missing.put(tenantId, Boolean.TRUE);
+        }
+        return asset;
+    }
+
+    @Override
+    public void evict(UUID tenantId) {
+        if (tenantId != null) {
+            cacheInvalidationBus.invalidateTenant(WHITE_LABEL_CACHE, tenantId);
+        }
+    }
+
+    private WhiteLabelAsset load(UUID tenantId) {
+        return whiteLabelRepository.findByTenantId(tenantId).map(whiteLabel -> toAsset(tenantId, whiteLabel)).orElse(null);
+    }
+
+    private WhiteLabelAsset toAsset(UUID tenantId, WhiteLabel whiteLabel) {
+        WhiteLabelDto whiteLabelDto = new WhiteLabelDto();
+        whiteLabelDto.setId(whiteLabel.getId());
+        whiteLabelDto.setAppTitle(whiteLabel.getAppTitle());
+        whiteLabelDto.setCreatedAt(whiteLabel.getCreatedAt());
+        whiteLabelDto.setUpdatedAt(whiteLabel.getUpdatedAt());
+        long lastModified = whiteLabel.getUpdatedAt() != null ? whiteLabel.getUpdatedAt().getTime() : 0L;
+
+        String logoImage = whiteLabel.getLogoImage();
+        if (logoImage == null || logoImage.isEmpty()) {
+            return new WhiteLabelAsset(tenantId, whiteLabelDto, null, null, null, null,
+                    String.format("\"%d\"", lastModified), lastModified);
+        }
+        if (!logoImage.startsWith(DATA_URL_PREFIX) || !logoImage.contains(BASE64_MARKER)) {
+            // Already a link to an image hosted elsewhere
+            whiteLabelDto.setLogoUrl(logoImage);
+            return new WhiteLabelAsset(tenantId, whiteLabelDto, null, null, null, null,
+                    String.format("\"%d\"", lastModified), lastModified);
+        }
+
+        int marker = logoImage.indexOf(BASE64_MARKER);
+        String contentType = logoContentType(logoImage.substring(DATA_URL_PREFIX.length(), marker));
+        if (contentType == null) {
+            log.warn("White label logo of tenant [{}] has an unsupported content type", tenantId);
+            return new WhiteLabelAsset(tenantId, whiteLabelDto, null, null, null, null,
+                    String.format("\"%d\"", lastModified), lastModified);
+        }
+        byte[] logo;
+        try {
+            logo = Base64.getMimeDecoder().decode(logoImage.substring(marker + BASE64_MARKER.length()));
+        } catch (IllegalArgumentException e) {
+            log.warn("White label logo of tenant [{}] is not valid base64", tenantId);
+            return new WhiteLabelAsset(tenantId, whiteLabelDto, null, null, null, null,
+                    String.format("\"%d\"", lastModified), lastModified);
+        }
+        String logoVersion = hash(logo);
+        whiteLabelDto.setLogoUrl(String.format(LOGO_PATH, tenantId, logoVersion));
+
+        byte[] gzipLogo = gzip(logo);
+        return new WhiteLabelAsset(
+                tenantId,
+                whiteLabelDto,
+                logo,
+                gzipLogo.length <= logo.length * (1 - MIN_GZIP_SAVING) ? gzipLogo : null,
+                contentType,
+                logoVersion,
+                String.format("\"%d-%s\"", lastModified, logoVersion),
+                lastModified
+        );
+    }
+
+    // Drops parameters such as ;charset, anything outside the allowed list yields null
+    private static String logoContentType(String declared) {
+        int parameters = declared.indexOf(';');
+        String contentType = (parameters >= 0 ? declared.substring(0, parameters) : declared).trim().toLowerCase(Locale.ROOT);
+        if (contentType.isEmpty()) {
+            return DEFAULT_LOGO_CONTENT_TYPE;
+        }
+        return LOGO_CONTENT_TYPES.contains(contentType) ? contentType : null;
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -3,12 +3,16 @@ package com.example.callbotsms.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 @Component
+@RequiredArgsConstructor
 public class CommonUtils {
+
+    private final ObjectMapper objectMapper;
+
     public JsonNode toJsonNode(String value) {
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
             return objectMapper.readTree(value);
         } catch (JsonProcessingException e) {
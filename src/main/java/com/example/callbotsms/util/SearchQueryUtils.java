@@ -0,0 +1,75 @@
+package com.example.callbotsms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class SearchQueryUtils {
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"(\\*?)|(\\S+)");
+    private static final Pattern LEXEME_SEPARATOR = Pattern.compile("[\\s&|!():*<>'\"\\\\]+");
+
+    private SearchQueryUtils() {
+    }
+
+    // Words are AND-ed, "quoted words" match as a phrase, word* matches a prefix, -word excludes, OR joins two terms
+    public static String toTsQuery(String searchText) {
+        if (searchText == null || searchText.isBlank()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        String operator = " & ";
+        Matcher matcher = TOKEN.matcher(searchText);
+        while (matcher.find()) {
+            String term;
+            if (matcher.group(1) != null) {
+                term = toPhrase(matcher.group(1), !matcher.group(2).isEmpty());
+            } else if (matcher.group(3).equalsIgnoreCase("OR")) {
+                operator = " | ";
+                continue;
+            } else {
+                term = toTerm(matcher.group(3));
+            }
+            if (term == null) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(operator);
+            }
+            query.append(term);
+            operator = " & ";
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    private static String toPhrase(String phrase, boolean prefix) {
+        List<String> lexemes = new ArrayList<>();
+        for (String word : LEXEME_SEPARATOR.split(phrase)) {
+            if (!word.isEmpty()) {
+                lexemes.add(quote(word));
+            }
+        }
+        if (lexemes.isEmpty()) {
+            return null;
+        }
+        if (prefix) {
+            lexemes.set(lexemes.size() - 1, lexemes.get(lexemes.size() - 1) + ":*");
+        }
+        return "(" + String.join(" <-> ", lexemes) + ")";
+    }
+
+    private static String toTerm(String word) {
+        boolean negate = word.length() > 1 && word.startsWith("-");
+        boolean prefix = word.endsWith("*");
+        String lexeme = LEXEME_SEPARATOR.matcher(negate ? word.substring(1) : word).replaceAll(" ").trim();
+        if (lexeme.isEmpty()) {
+            return null;
+        }
+        return (negate ? "!" : "") + quote(lexeme) + (prefix ? ":*" : "");
+    }
+
+    private static String quote(String lexeme) {
+        return "'" + lexeme.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.callbotsms.benchmark;
+
+import com.example.callbotsms.dto.request.SignUpRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Run with: mvn test-compile exec:java
+//   -Dexec.mainClass=com.example.callbotsms.benchmark.AuditLogSerializationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class AuditLogSerializationBenchmark {
+
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+
+    private SignUpRequest payload;
+
+    @Setup
+    public void setUp() {
+        payload = new SignUpRequest();
+        payload.setFirstName("Nguyễn");
+        payload.setLastName("Văn An");
+        payload.setEmail("an.nguyen@example.com");
+        payload.setPassword("s3cret-passw0rd");
+    }
+
+    @Benchmark
+    public String newMapperValueToTree() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.valueToTree(payload).toString();
+    }
+
+    @Benchmark
+    public String sharedMapperValueToTree() {
+        return sharedMapper.valueToTree(payload).toString();
+    }
+
+    @Benchmark
+    public String sharedMapperWriteValue() throws JsonProcessingException {
+        return sharedMapper.writeValueAsString(payload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuditLogSerializationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
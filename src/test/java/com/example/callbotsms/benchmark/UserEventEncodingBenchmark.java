@@ -0,0 +1,82 @@
+package com.example.callbotsms.benchmark;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.example.callbotsms.service.UserEventCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Run with: mvn test-compile exec:java
+//   -Dexec.mainClass=com.example.callbotsms.benchmark.UserEventEncodingBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventEncodingBenchmark {
+
+    @Param({UserEventCodec.JSON, UserEventCodec.AVRO})
+    public String contentType;
+
+    private UserEventCodec codec;
+
+    private AppUserDto user;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = new UserEventCodec(new ObjectMapper(), Map.of());
+        user = sampleUser();
+        encoded = codec.encode(user, contentType);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(user, contentType);
+    }
+
+    @Benchmark
+    public AppUserDto decode() {
+        return codec.decode(encoded, contentType);
+    }
+
+    private static AppUserDto sampleUser() {
+        AppUserDto user = new AppUserDto();
+        user.setId(UUID.randomUUID());
+        user.setEmail("an.nguyen@example.com");
+        user.setFirstName("Nguyễn");
+        user.setLastName("Văn An");
+        user.setPhone("+84901234567");
+        user.setAuthority("CUSTOMER_USER");
+        user.setRole("CUSTOMER");
+        user.setTenantId(UUID.randomUUID());
+        user.setContactId(UUID.randomUUID());
+        user.setCreatedAt(new Date());
+        user.setUpdatedAt(new Date());
+        user.setCreatedBy(UUID.randomUUID());
+        user.setUpdatedBy(UUID.randomUUID());
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        UserEventCodec codec = new UserEventCodec(new ObjectMapper(), Map.of());
+        AppUserDto user = sampleUser();
+        System.out.printf("Message size: json=%d bytes, avro=%d bytes%n",
+                codec.encode(user, UserEventCodec.JSON).length,
+                codec.encode(user, UserEventCodec.AVRO).length);
+
+        new Runner(new OptionsBuilder()
+                .include(UserEventEncodingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
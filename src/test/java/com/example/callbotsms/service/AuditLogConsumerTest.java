@@ -0,0 +1,86 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditLogConsumerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LogJdbcRepository logJdbcRepository;
+
+    private LogRollupService logRollupService;
+
+    private AuditLogConsumer auditLogConsumer;
+
+    @BeforeEach
+    void setUp() {
+        logJdbcRepository = mock(LogJdbcRepository.class);
+        logRollupService = mock(LogRollupService.class);
+        auditLogConsumer = new AuditLogConsumer(logJdbcRepository, logRollupService, objectMapper,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void redeliveredRecordsAreNotCountedTwice() throws JsonProcessingException {
+        Log written = log();
+        Log fresh = log();
+        // The first record was stored before the redelivery, the insert skips it
+        when(logJdbcRepository.batchInsert(anyList())).thenAnswer(invocation -> {
+            List<Log> batch = invocation.getArgument(0);
+            return batch.subList(1, batch.size());
+        });
+
+        auditLogConsumer.consume(records(written, fresh));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Log>> counted = ArgumentCaptor.forClass(List.class);
+        verify(logRollupService).record(counted.capture());
+        assertThat(counted.getValue()).extracting(Log::getId).containsExactly(fresh.getId());
+    }
+
+    @Test
+    void fullyRedeliveredBatchRecordsNoRollups() throws JsonProcessingException {
+        when(logJdbcRepository.batchInsert(anyList())).thenReturn(List.of());
+
+        auditLogConsumer.consume(records(log(), log()));
+
+        verify(logRollupService, never()).record(anyList());
+    }
+
+    private List<String> records(Log... logs) throws JsonProcessingException {
+        List<String> records = new ArrayList<>();
+        for (Log log : logs) {
+            records.add(objectMapper.writeValueAsString(log));
+        }
+        return records;
+    }
+
+    private static Log log() {
+        Log log = new Log();
+        log.setId(UUID.randomUUID());
+        log.setTenantId(UUID.randomUUID());
+        log.setActionData("{}");
+        log.setCreatedAt(new Date());
+        return log;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AuditLogDeduplicatorTest {
+
+    private static final long WINDOW_MS = 60_000;
+
+    private static final UUID TENANT_ID = UUID.randomUUID();
+
+    private AuditLogWriter auditLogWriter;
+
+    private AuditLogDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        auditLogWriter = mock(AuditLogWriter.class);
+        deduplicator = new AuditLogDeduplicator(auditLogWriter, new SimpleMeterRegistry(),
+                true, WINDOW_MS, 2, List.of(ActionStatus.FAILURE));
+        deduplicator.start();
+    }
+
+    @Test
+    void identicalFailuresCollapseIntoTheFirstRow() {
+        Log first = log(ActionStatus.FAILURE, "timeout", System.currentTimeMillis());
+        Log second = log(ActionStatus.FAILURE, "timeout", System.currentTimeMillis() + 10);
+
+        assertThat(deduplicator.write(first)).isSameAs(first);
+        assertThat(deduplicator.write(second)).isSameAs(first);
+
+        verify(auditLogWriter, never()).write(any());
+        assertThat(first.getOccurrenceCount()).isEqualTo(2);
+        assertThat(first.getLastOccurredAt()).isEqualTo(second.getCreatedAt());
+    }
+
+    @Test
+    void openWindowIsOnlyFlushedOnceExpired() {
+        long now = System.currentTimeMillis();
+        Log open = log(ActionStatus.FAILURE, "open", now);
+        Log expired = log(ActionStatus.FAILURE, "expired", now - WINDOW_MS - 1);
+        deduplicator.write(open);
+        deduplicator.write(expired);
+        deduplicator.write(log(ActionStatus.FAILURE, "expired", now));
+
+        deduplicator.flushExpired();
+
+        ArgumentCaptor<Log> written = ArgumentCaptor.forClass(Log.class);
+        verify(auditLogWriter).write(written.capture());
+        assertThat(written.getValue()).isSameAs(expired);
+        assertThat(written.getValue().getOccurrenceCount()).isEqualTo(2);
+
+        // A new occurrence after the flush opens a fresh window
+        Log next = log(ActionStatus.FAILURE, "expired", now);
+        assertThat(deduplicator.write(next)).isSameAs(next);
+    }
+
+    @Test
+    void stopFlushesEveryOpenWindow() {
+        deduplicator.write(log(ActionStatus.FAILURE, "a", System.currentTimeMillis()));
+        deduplicator.write(log(ActionStatus.FAILURE, "b", System.currentTimeMillis()));
+
+        deduplicator.stop();
+
+        verify(auditLogWriter, times(2)).write(any());
+    }
+
+    @Test
+    void otherStatusesAndOverflowAreWrittenThrough() {
+        Log success = log(ActionStatus.SUCCESS, null, System.currentTimeMillis());
+        assertThat(deduplicator.write(success)).isSameAs(success);
+        verify(auditLogWriter).write(success);
+
+        deduplicator.write(log(ActionStatus.FAILURE, "a", System.currentTimeMillis()));
+        deduplicator.write(log(ActionStatus.FAILURE, "b", System.currentTimeMillis()));
+        Log overflow = log(ActionStatus.FAILURE, "c", System.currentTimeMillis());
+        assertThat(deduplicator.write(overflow)).isSameAs(overflow);
+        verify(auditLogWriter).write(overflow);
+    }
+
+    private static Log log(ActionStatus status, String failure, long createdAt) {
+        Log log = new Log();
+        log.setId(UUID.randomUUID());
+        log.setTenantId(TENANT_ID);
+        log.setEntityType(EntityType.USER);
+        log.setActionType(ActionType.UPDATED);
+        log.setActionStatus(status);
+        log.setActionFailureDetails(failure);
+        log.setCreatedAt(new Date(createdAt));
+        return log;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.config.KafkaConsumerConfig;
+import com.example.callbotsms.config.KafkaProducerConfig;
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.repository.LogJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringJUnitConfig
+@EmbeddedKafka(partitions = 1, topics = "auditLogTopic")
+@TestPropertySource(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.group-id=test",
+        "app.audit.topic=auditLogTopic",
+        "app.audit.writer=kafka",
+        "app.audit.consumer.enabled=true"
+})
+class KafkaAuditLogPipelineTest {
+
+    @Configuration
+    @Import({KafkaProducerConfig.class, KafkaConsumerConfig.class, KafkaAuditLogWriter.class, AuditLogConsumer.class})
+    static class Config {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    LogJdbcRepository logJdbcRepository;
+
+    @MockBean
+    LogRollupService logRollupService;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    KafkaAuditLogWriter kafkaAuditLogWriter;
+
+    @Test
+    void publishedLogsArePersistedInBatches() throws InterruptedException {
+        UUID tenantId = UUID.randomUUID();
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<Log> persisted = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(ids.size());
+        doAnswer(invocation -> {
+            List<Log> batch = invocation.getArgument(0);
+            persisted.addAll(batch);
+            batch.forEach(log -> latch.countDown());
+            return batch;
+        }).when(logJdbcRepository).batchInsert(anyList());
+
+        for (UUID id : ids) {
+            Log log = new Log();
+            log.setId(id);
+            log.setTenantId(tenantId);
+            log.setActionData("{}");
+            log.setCreatedAt(new Date());
+            kafkaAuditLogWriter.write(log);
+        }
+
+        assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(persisted).extracting(Log::getId).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(persisted).allSatisfy(log -> assertThat(log.getTenantId()).isEqualTo(tenantId));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.model.Log;
+import com.example.callbotsms.model.SyncWatermark;
+import com.example.callbotsms.model.enums.ActionStatus;
+import com.example.callbotsms.model.enums.ActionType;
+import com.example.callbotsms.model.enums.EntityType;
+import com.example.callbotsms.repository.SyncWatermarkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LogArchiveServiceImplTest {
+
+    private static final UUID TENANT_ID = UUID.randomUUID();
+
+    private final YearMonth month = YearMonth.now().minusMonths(2);
+
+    private final List<Log> table = new ArrayList<>();
+
+    @TempDir
+    Path archiveDir;
+
+    private LogArchiveServiceImpl logArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        JdbcTemplate streamingJdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(eq("SELECT pg_try_advisory_xact_lock(?)"), eq(Boolean.class), any()))
+                .thenReturn(true);
+        SyncWatermarkRepository syncWatermarkRepository = mock(SyncWatermarkRepository.class);
+        AtomicReference<Date> watermark = new AtomicReference<>();
+        when(syncWatermarkRepository.advance(anyString(), any())).thenAnswer(invocation -> {
+            watermark.set(invocation.getArgument(1));
+            return 1;
+        });
+        when(syncWatermarkRepository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(watermark.get()).map(date -> new SyncWatermark(invocation.getArgument(0), date, date)));
+        when(jdbcTemplate.queryForObject(eq("SELECT MIN(created_at) FROM log"), eq(Timestamp.class))).thenAnswer(invocation ->
+                table.stream().map(Log::getCreatedAt).min(Comparator.naturalOrder())
+                        .map(createdAt -> new Timestamp(createdAt.getTime())).orElse(null));
+        // The table is emptied by the test itself, the archiver only ever sees what is left in it
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Timestamp from = invocation.getArgument(2);
+            Timestamp to = invocation.getArgument(3);
+            List<Log> rows = table.stream()
+                    .filter(row -> !row.getCreatedAt().before(from) && row.getCreatedAt().before(to))
+                    .sorted(Comparator.comparing(Log::getCreatedAt))
+                    .collect(Collectors.toList());
+            for (Log row : rows) {
+                handler.processRow(toResultSet(row));
+            }
+            return null;
+        }).when(streamingJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        logArchiveService = new LogArchiveServiceImpl(jdbcTemplate, streamingJdbcTemplate,
+                mock(PlatformTransactionManager.class), syncWatermarkRepository, new ObjectMapper(), true, archiveDir.toString(), 1, 2);
+    }
+
+    @Test
+    void archivingAMonthTwiceKeepsEveryRow() {
+        Log first = log(5);
+        Log second = log(10);
+        Log third = log(15);
+        table.addAll(List.of(first, second, third));
+        logArchiveService.archiveExpiredLogs();
+        table.clear();
+
+        assertThat(findArchived()).extracting(Log::getId)
+                .containsExactly(third.getId(), second.getId(), first.getId());
+
+        // Late deliveries into the archived month, plus a row whose delete did not happen last time
+        Log late = log(7);
+        Log latest = log(20);
+        table.addAll(List.of(late, latest, second));
+        logArchiveService.archiveExpiredLogs();
+        table.clear();
+
+        assertThat(findArchived()).extracting(Log::getId)
+                .containsExactly(latest.getId(), third.getId(), second.getId(), late.getId(), first.getId());
+    }
+
+    private List<Log> findArchived() {
+        Date start = toDate(month);
+        Date end = toDate(month.plusMonths(1));
+        LogArchiveService.ArchivedLogs archived = logArchiveService.findArchivedLogs(TENANT_ID, start, end, null, 0, 100);
+        assertThat(archived.getTotal()).isEqualTo(archived.getLogs().size());
+        return archived.getLogs();
+    }
+
+    private Log log(int day) {
+        Log log = new Log();
+        log.setId(UUID.randomUUID());
+        log.setTenantId(TENANT_ID);
+        log.setEntityType(EntityType.USER);
+        log.setActionType(ActionType.UPDATED);
+        log.setActionStatus(ActionStatus.SUCCESS);
+        log.setActionData("{}");
+        log.setCreatedAt(Date.from(month.atDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        return log;
+    }
+
+    private static ResultSet toResultSet(Log row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn(row.getId());
+        when(rs.getObject("tenant_id", UUID.class)).thenReturn(row.getTenantId());
+        when(rs.getString("entity_type")).thenReturn(row.getEntityType().name());
+        when(rs.getString("action_status")).thenReturn(row.getActionStatus().name());
+        when(rs.getString("action_type")).thenReturn(row.getActionType().name());
+        when(rs.getString("action_data")).thenReturn(row.getActionData());
+        when(rs.getTimestamp("created_at")).thenReturn(new Timestamp(row.getCreatedAt().getTime()));
+        when(rs.getInt("occurrence_count")).thenReturn(row.getOccurrenceCount());
+        return rs;
+    }
+
+    private static Date toDate(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
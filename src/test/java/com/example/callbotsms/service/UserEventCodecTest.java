@@ -0,0 +1,83 @@
+package com.example.callbotsms.service;
+
+import com.example.callbotsms.dto.model.AppUserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventCodecTest {
+
+    private final UserEventCodec codec = new UserEventCodec(new ObjectMapper(), Map.of("avroTopic", "avro"));
+
+    @Test
+    void topicsStayJsonUnlessSwitchedToAvro() {
+        assertThat(codec.contentTypeFor("saveUserTopic")).isEqualTo(UserEventCodec.JSON);
+        assertThat(codec.contentTypeFor("avroTopic")).isEqualTo(UserEventCodec.AVRO);
+    }
+
+    @Test
+    void jsonRoundTripKeepsEveryField() {
+        AppUserDto user = fullUser();
+
+        byte[] encoded = codec.encode(user, UserEventCodec.JSON);
+
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).contains(user.getId().toString());
+        assertThat(codec.decode(encoded, UserEventCodec.JSON)).isEqualTo(user);
+    }
+
+    @Test
+    void avroRoundTripKeepsEveryField() {
+        AppUserDto user = fullUser();
+
+        assertThat(codec.decode(codec.encode(user, UserEventCodec.AVRO), UserEventCodec.AVRO)).isEqualTo(user);
+    }
+
+    @Test
+    void nullFieldsSurviveBothEncodings() {
+        AppUserDto user = new AppUserDto();
+        user.setId(UUID.randomUUID());
+
+        assertThat(codec.decode(codec.encode(user, UserEventCodec.JSON), UserEventCodec.JSON)).isEqualTo(user);
+        assertThat(codec.decode(codec.encode(user, UserEventCodec.AVRO), UserEventCodec.AVRO)).isEqualTo(user);
+    }
+
+    @Test
+    void uuidsKeepAllTheirBits() {
+        AppUserDto user = new AppUserDto();
+        user.setId(new UUID(-1L, -1L));
+        user.setTenantId(new UUID(Long.MIN_VALUE, 1L));
+        user.setContactId(new UUID(0L, 0L));
+
+        AppUserDto decoded = codec.decode(codec.encode(user, UserEventCodec.AVRO), UserEventCodec.AVRO);
+
+        assertThat(decoded.getId()).isEqualTo(user.getId());
+        assertThat(decoded.getTenantId()).isEqualTo(user.getTenantId());
+        assertThat(decoded.getContactId()).isEqualTo(user.getContactId());
+    }
+
+    private static AppUserDto fullUser() {
+        Date createdAt = new Date(1_700_000_000_123L);
+        return new AppUserDto(
+                UUID.randomUUID(),
+                "user@example.com",
+                "Thảo",
+                "Nguyễn",
+                "+84901234567",
+                "TENANT_ADMIN",
+                "ADMIN",
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                "https://cdn.example.com/avatar.png",
+                createdAt,
+                new Date(createdAt.getTime() + 1000),
+                UUID.randomUUID(),
+                UUID.randomUUID()
+        );
+    }
+}